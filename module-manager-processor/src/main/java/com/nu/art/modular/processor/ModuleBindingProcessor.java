@@ -0,0 +1,390 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nu.art.modular.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Generates a <i>ModuleBinding</i> for each concrete {@code Module} and {@code ModuleItem} type in the compiled sources.
+ * <br>
+ * A binding holds a plain java injector for the module fields, the table of the types the bound type can listen to, and the default interface binder.
+ * Types whose module fields cannot be assigned from generated code (private, final, or inaccessible from the type's package) are skipped, and the module
+ * manager falls back to reflection for them.
+ */
+@SupportedAnnotationTypes("*")
+public class ModuleBindingProcessor
+	extends AbstractProcessor {
+
+	private static final String ModuleType = "com.nu.art.modular.core.Module";
+	private static final String ModuleItemType = "com.nu.art.modular.core.ModuleItem";
+	private static final String BindingType = "com.nu.art.modular.core.ModuleBinding";
+	private static final String BindingSuffix = "_ModuleBinding";
+
+	private static final class InjectedField {
+
+		private final String declaringType;
+		private final String name;
+		private final String type;
+
+		private InjectedField(String declaringType, String name, String type) {
+			this.declaringType = declaringType;
+			this.name = name;
+			this.type = type;
+		}
+	}
+
+	private final HashSet<String> processedTypes = new HashSet<>();
+
+	private Elements elements;
+
+	private Types types;
+
+	private TypeMirror moduleType;
+
+	private TypeMirror moduleItemType;
+
+	@Override
+	public synchronized void init(ProcessingEnvironment processingEnv) {
+		super.init(processingEnv);
+		elements = processingEnv.getElementUtils();
+		types = processingEnv.getTypeUtils();
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		TypeElement moduleElement = elements.getTypeElement(ModuleType);
+		TypeElement moduleItemElement = elements.getTypeElement(ModuleItemType);
+		if (moduleElement == null || moduleItemElement == null)
+			return false;
+
+		moduleType = types.erasure(moduleElement.asType());
+		moduleItemType = types.erasure(moduleItemElement.asType());
+
+		for (Element element : roundEnv.getRootElements()) {
+			processElement(element);
+		}
+
+		return false;
+	}
+
+	private void processElement(Element element) {
+		if (!(element instanceof TypeElement))
+			return;
+
+		TypeElement type = (TypeElement) element;
+		for (TypeElement nestedType : ElementFilter.typesIn(type.getEnclosedElements())) {
+			processElement(nestedType);
+		}
+
+		if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT))
+			return;
+
+		TypeMirror erasure = types.erasure(type.asType());
+		boolean isModule = types.isSubtype(erasure, moduleType);
+		if (!isModule && !types.isSubtype(erasure, moduleItemType))
+			return;
+
+		String packageName = getPackageName(type);
+		if (!isAccessible(type, packageName))
+			return;
+
+		if (!processedTypes.add(type.getQualifiedName().toString()))
+			return;
+
+		ArrayList<InjectedField> injectedFields = collectInjectedFields(type, packageName);
+		if (injectedFields == null) {
+			processingEnv.getMessager()
+			             .printMessage(Kind.NOTE, "Module fields of " + type.getQualifiedName() + " are not accessible, injection will use reflection", type);
+			return;
+		}
+
+		try {
+			writeBinding(type, packageName, injectedFields, collectListenerTypes(type, packageName), isModule ? findDefaultInterfaceField(type, packageName) : null);
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Kind.ERROR, "Error generating module binding: " + e.getMessage(), type);
+		}
+	}
+
+	/**
+	 * @return The module fields in the hierarchy of the type, or null if any of them cannot be assigned from the type's package.
+	 */
+	private ArrayList<InjectedField> collectInjectedFields(TypeElement type, String packageName) {
+		ArrayList<InjectedField> injectedFields = new ArrayList<>();
+		for (TypeElement declaringType = type; declaringType != null; declaringType = getSuperclass(declaringType)) {
+			for (VariableElement field : ElementFilter.fieldsIn(declaringType.getEnclosedElements())) {
+				Set<Modifier> modifiers = field.getModifiers();
+				if (modifiers.contains(Modifier.STATIC))
+					continue;
+
+				TypeMirror fieldType = field.asType();
+				if (fieldType.getKind() == TypeKind.TYPEVAR)
+					return null;
+
+				if (fieldType.getKind() != TypeKind.DECLARED || !types.isSubtype(types.erasure(fieldType), moduleType))
+					continue;
+
+				// the module manager never injects the base Module type
+				if (types.isSameType(types.erasure(fieldType), moduleType))
+					continue;
+
+				if (modifiers.contains(Modifier.FINAL) || !isAccessible(field, declaringType, packageName))
+					return null;
+
+				TypeElement fieldTypeElement = (TypeElement) types.asElement(fieldType);
+				if (!isAccessible(fieldTypeElement, packageName))
+					return null;
+
+				injectedFields.add(new InjectedField(declaringType.getQualifiedName().toString(), field.getSimpleName().toString(), fieldTypeElement.getQualifiedName()
+				                                                                                                                                      .toString()));
+			}
+		}
+
+		return injectedFields;
+	}
+
+	/**
+	 * @return All the types the given type is assignable to, or null if any of them is not accessible from the type's package.
+	 */
+	private ArrayList<String> collectListenerTypes(TypeElement type, String packageName) {
+		LinkedHashMap<String, TypeElement> listenerTypes = new LinkedHashMap<>();
+		collectSupertypes(types.erasure(type.asType()), listenerTypes);
+
+		for (TypeElement listenerType : listenerTypes.values()) {
+			if (!isAccessible(listenerType, packageName))
+				return null;
+		}
+
+		return new ArrayList<>(listenerTypes.keySet());
+	}
+
+	private void collectSupertypes(TypeMirror typeMirror, LinkedHashMap<String, TypeElement> listenerTypes) {
+		TypeElement typeElement = (TypeElement) types.asElement(typeMirror);
+		String name = typeElement.getQualifiedName().toString();
+		if (name.equals(Object.class.getName()) || listenerTypes.containsKey(name))
+			return;
+
+		listenerTypes.put(name, typeElement);
+		for (TypeMirror supertype : types.directSupertypes(typeMirror)) {
+			collectSupertypes(types.erasure(supertype), listenerTypes);
+		}
+	}
+
+	/**
+	 * Mirrors the runtime lookup of the module's default interface: a public member type named I{ModuleName} with a public static field named _{ModuleName}.
+	 *
+	 * @return The static field to assign the module instance to, or null if there is none.
+	 */
+	private String findDefaultInterfaceField(TypeElement type, String packageName) {
+		String simpleName = type.getSimpleName().toString();
+		for (TypeElement declaringType = type; declaringType != null; declaringType = getSuperclass(declaringType)) {
+			for (TypeElement memberType : ElementFilter.typesIn(declaringType.getEnclosedElements())) {
+				if (!memberType.getModifiers().contains(Modifier.PUBLIC) || !memberType.getSimpleName().contentEquals("I" + simpleName))
+					continue;
+
+				if (!isAccessible(memberType, packageName))
+					return null;
+
+				for (VariableElement field : ElementFilter.fieldsIn(memberType.getEnclosedElements())) {
+					Set<Modifier> modifiers = field.getModifiers();
+					if (!field.getSimpleName().contentEquals("_" + simpleName))
+						continue;
+
+					if (!modifiers.contains(Modifier.PUBLIC) || !modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.FINAL))
+						return null;
+
+					if (!types.isAssignable(types.erasure(type.asType()), types.erasure(field.asType())))
+						return null;
+
+					return memberType.getQualifiedName() + "." + field.getSimpleName();
+				}
+
+				return null;
+			}
+		}
+
+		return null;
+	}
+
+	private void writeBinding(TypeElement type, String packageName, ArrayList<InjectedField> injectedFields, ArrayList<String> listenerTypes,
+	                          String defaultInterfaceField)
+		throws IOException {
+		String binaryName = elements.getBinaryName(type).toString();
+		String bindingName = escapeBindingName(packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + BindingSuffix;
+		String typeName = type.getQualifiedName().toString();
+
+		StringBuilder source = new StringBuilder();
+		source.append("// Generated by ").append(getClass().getSimpleName()).append(", do not edit!\n");
+		if (!packageName.isEmpty())
+			source.append("package ").append(packageName).append(";\n\n");
+
+		source.append("@SuppressWarnings({\"rawtypes\", \"unchecked\", \"cast\"})\n");
+		source.append("public final class ").append(bindingName).append("\n");
+		source.append("\timplements ").append(BindingType).append("<").append(typeName).append("> {\n\n");
+
+		source.append("\tprivate static final Class<?>[] InjectedTypes = {");
+		for (int i = 0; i < injectedFields.size(); i++) {
+			source.append(i == 0 ? "" : ", ").append(injectedFields.get(i).type).append(".class");
+		}
+		source.append("};\n\n");
+
+		if (listenerTypes == null)
+			source.append("\tprivate static final Class<?>[] ListenerTypes = null;\n\n");
+		else {
+			source.append("\tprivate static final Class<?>[] ListenerTypes = {");
+			for (int i = 0; i < listenerTypes.size(); i++) {
+				source.append(i == 0 ? "" : ", ").append(listenerTypes.get(i)).append(".class");
+			}
+			source.append("};\n\n");
+		}
+
+		source.append("\t@Override\n");
+		source.append("\tpublic Class<?>[] getInjectedTypes() {\n");
+		source.append("\t\treturn InjectedTypes;\n");
+		source.append("\t}\n\n");
+
+		source.append("\t@Override\n");
+		source.append("\tpublic void inject(").append(typeName).append(" instance, Object[] modules) {\n");
+		for (int i = 0; i < injectedFields.size(); i++) {
+			InjectedField field = injectedFields.get(i);
+			// fields declared by a super class are accessed via their declaring type, in case the bound type hides them
+			if (field.declaringType.equals(typeName))
+				source.append("\t\tinstance.").append(field.name);
+			else
+				source.append("\t\t((").append(field.declaringType).append(") instance).").append(field.name);
+			source.append(" = (").append(field.type).append(") modules[").append(i).append("];\n");
+		}
+		source.append("\t}\n\n");
+
+		source.append("\t@Override\n");
+		source.append("\tpublic Class<?>[] getListenerTypes() {\n");
+		source.append("\t\treturn ListenerTypes;\n");
+		source.append("\t}\n\n");
+
+		source.append("\t@Override\n");
+		source.append("\tpublic boolean bindDefaultInterface(").append(typeName).append(" instance) {\n");
+		if (defaultInterfaceField != null) {
+			source.append("\t\t").append(defaultInterfaceField).append(" = instance;\n");
+			source.append("\t\treturn true;\n");
+		} else
+			source.append("\t\treturn false;\n");
+		source.append("\t}\n");
+		source.append("}\n");
+
+		String qualifiedBindingName = packageName.isEmpty() ? bindingName : packageName + "." + bindingName;
+		try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedBindingName, type).openWriter()) {
+			writer.write(source.toString());
+		}
+	}
+
+	/**
+	 * Escapes the binary name of a type, relative to its package, into the simple name of its binding: '_' becomes "__" and '$' becomes "_0", so two
+	 * distinct types, like A_B and A$B, can never share a binding name.
+	 * <br>
+	 * MUST match the escaping of the runtime lookup in ModuleBindings.
+	 */
+	static String escapeBindingName(String relativeBinaryName) {
+		StringBuilder escaped = new StringBuilder(relativeBinaryName.length() + 8);
+		for (int i = 0; i < relativeBinaryName.length(); i++) {
+			char c = relativeBinaryName.charAt(i);
+			if (c == '_')
+				escaped.append("__");
+			else if (c == '$')
+				escaped.append("_0");
+			else
+				escaped.append(c);
+		}
+		return escaped.toString();
+	}
+
+	private TypeElement getSuperclass(TypeElement type) {
+		TypeMirror superclass = type.getSuperclass();
+		if (superclass.getKind() != TypeKind.DECLARED)
+			return null;
+
+		TypeElement superElement = (TypeElement) ((DeclaredType) superclass).asElement();
+		if (superElement.getQualifiedName().contentEquals(Object.class.getName()))
+			return null;
+
+		return superElement;
+	}
+
+	private String getPackageName(Element element) {
+		PackageElement _package = elements.getPackageOf(element);
+		return _package.isUnnamed() ? "" : _package.getQualifiedName().toString();
+	}
+
+	private boolean isAccessible(VariableElement field, TypeElement declaringType, String packageName) {
+		Set<Modifier> modifiers = field.getModifiers();
+		if (modifiers.contains(Modifier.PRIVATE))
+			return false;
+
+		if (!isAccessible(declaringType, packageName))
+			return false;
+
+		return modifiers.contains(Modifier.PUBLIC) || getPackageName(declaringType).equals(packageName);
+	}
+
+	/**
+	 * @return Whether the type can be referenced from code in the given package.
+	 */
+	private boolean isAccessible(TypeElement type, String packageName) {
+		boolean samePackage = getPackageName(type).equals(packageName);
+		for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+			Set<Modifier> modifiers = element.getModifiers();
+			if (modifiers.contains(Modifier.PRIVATE))
+				return false;
+
+			if (!modifiers.contains(Modifier.PUBLIC) && !samePackage)
+				return false;
+		}
+
+		return true;
+	}
+}
@@ -0,0 +1,229 @@
+package com.nu.art.modular.processor;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compiles sample modules with the processor, against minimal stand-ins of the module-manager core types, and checks the generated bindings.
+ */
+public class Test_ModuleBindingProcessor {
+
+	private static final String[][] CoreSources = {
+		{
+			"com.nu.art.modular.core.Module",
+			"package com.nu.art.modular.core; public abstract class Module {}"
+		},
+		{
+			"com.nu.art.modular.core.ModuleItem",
+			"package com.nu.art.modular.core; public abstract class ModuleItem {}"
+		},
+		{
+			"com.nu.art.modular.core.ModuleBinding",
+			"package com.nu.art.modular.core; public interface ModuleBinding<Type> {" +
+				" Class<?>[] getInjectedTypes(); void inject(Type instance, Object[] modules); Class<?>[] getListenerTypes(); boolean bindDefaultInterface(Type instance); }"
+		},
+	};
+
+	private static final class Source
+		extends SimpleJavaFileObject {
+
+		private final String content;
+
+		private Source(String className, String content) {
+			super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+			this.content = content;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return content;
+		}
+	}
+
+	private JavaCompiler compiler;
+
+	private File outputDir;
+
+	private DiagnosticCollector<JavaFileObject> diagnostics;
+
+	@Before
+	public void setUp()
+		throws IOException {
+		compiler = ToolProvider.getSystemJavaCompiler();
+		Assume.assumeTrue(compiler != null);
+
+		outputDir = Files.createTempDirectory("module-bindings").toFile();
+		diagnostics = new DiagnosticCollector<>();
+	}
+
+	/**
+	 * @return Whether the sources compiled with the processor, warnings of the generated code fail the compilation.
+	 */
+	private boolean compile(String[]... sources)
+		throws IOException {
+		ArrayList<JavaFileObject> files = new ArrayList<>();
+		for (String[] source : CoreSources) {
+			files.add(new Source(source[0], source[1]));
+		}
+		for (String[] source : sources) {
+			files.add(new Source(source[0], source[1]));
+		}
+
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+		try {
+			List<String> options = Arrays.asList("-d", outputDir.getPath(), "-s", outputDir.getPath(), "-Xlint:cast,rawtypes,unchecked", "-Werror");
+			CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, files);
+			task.setProcessors(Collections.singletonList(new ModuleBindingProcessor()));
+			return task.call();
+		} finally {
+			fileManager.close();
+		}
+	}
+
+	private String describeDiagnostics() {
+		StringBuilder description = new StringBuilder();
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+			description.append("\n").append(diagnostic.getKind()).append(": ").append(diagnostic.getMessage(null));
+		}
+		return description.toString();
+	}
+
+	private Class<?> loadClass(ClassLoader classLoader, String className)
+		throws ClassNotFoundException {
+		return Class.forName(className, true, classLoader);
+	}
+
+	@Test
+	public void test_GeneratedBindingInjectsWithoutWarnings()
+		throws Exception {
+		assertTrue(describeDiagnostics(), compile(new String[]{
+			"app.Dependency",
+			"package app; public class Dependency extends com.nu.art.modular.core.Module {}"
+		}, new String[]{
+			"app.BaseModule",
+			"package app; public abstract class BaseModule extends com.nu.art.modular.core.Module { Dependency inherited; }"
+		}, new String[]{
+			"app.MyModule",
+			"package app; public class MyModule extends BaseModule { Dependency dependency; }"
+		}));
+
+		assertTrue(new File(outputDir, "app/MyModule_ModuleBinding.java").exists());
+		assertFalse(new File(outputDir, "app/BaseModule_ModuleBinding.java").exists());
+
+		URLClassLoader classLoader = new URLClassLoader(new URL[]{outputDir.toURI().toURL()});
+		try {
+			Object module = loadClass(classLoader, "app.MyModule").newInstance();
+			Object dependency = loadClass(classLoader, "app.Dependency").newInstance();
+			Object binding = loadClass(classLoader, "app.MyModule_ModuleBinding").newInstance();
+
+			Method getInjectedTypes = binding.getClass().getMethod("getInjectedTypes");
+			assertEquals(2, ((Class<?>[]) getInjectedTypes.invoke(binding)).length);
+
+			Method inject = binding.getClass().getMethod("inject", module.getClass(), Object[].class);
+			inject.invoke(binding, module, new Object[]{dependency, dependency});
+
+			assertSame(dependency, getField(module.getClass(), "dependency").get(module));
+			assertSame(dependency, getField(module.getClass().getSuperclass(), "inherited").get(module));
+		} finally {
+			classLoader.close();
+		}
+	}
+
+	@Test
+	public void test_NestedAndUnderscoreNamesDoNotCollide()
+		throws Exception {
+		assertTrue(describeDiagnostics(), compile(new String[]{
+			"app.A_B",
+			"package app; public class A_B extends com.nu.art.modular.core.Module {}"
+		}, new String[]{
+			"app.A",
+			"package app; public class A { public static class B extends com.nu.art.modular.core.Module {} }"
+		}));
+
+		assertTrue(new File(outputDir, "app/A__B_ModuleBinding.java").exists());
+		assertTrue(new File(outputDir, "app/A_0B_ModuleBinding.java").exists());
+		assertEquals("A__B", ModuleBindingProcessor.escapeBindingName("A_B"));
+		assertEquals("A_0B", ModuleBindingProcessor.escapeBindingName("A$B"));
+	}
+
+	@Test
+	public void test_InaccessibleFieldsFallBackToReflection()
+		throws Exception {
+		assertTrue(describeDiagnostics(), compile(new String[]{
+			"app.Dependency",
+			"package app; public class Dependency extends com.nu.art.modular.core.Module {}"
+		}, new String[]{
+			"app.PrivateFieldModule",
+			"package app; public class PrivateFieldModule extends com.nu.art.modular.core.Module { private Dependency dependency; }"
+		}));
+
+		assertFalse(new File(outputDir, "app/PrivateFieldModule_ModuleBinding.java").exists());
+		assertTrue(new File(outputDir, "app/Dependency_ModuleBinding.java").exists());
+	}
+
+	@Test
+	public void test_DefaultInterfaceBinding()
+		throws Exception {
+		assertTrue(describeDiagnostics(), compile(new String[]{
+			"app.BoundModule",
+			"package app; public class BoundModule extends com.nu.art.modular.core.Module {" +
+				" public static class IBoundModule { public static BoundModule _BoundModule; } }"
+		}, new String[]{
+			"app.FinalFieldModule",
+			"package app; public class FinalFieldModule extends com.nu.art.modular.core.Module {" +
+				" public static class IFinalFieldModule { public static final FinalFieldModule _FinalFieldModule = null; } }"
+		}));
+
+		URLClassLoader classLoader = new URLClassLoader(new URL[]{outputDir.toURI().toURL()});
+		try {
+			Object module = loadClass(classLoader, "app.BoundModule").newInstance();
+			Object binding = loadClass(classLoader, "app.BoundModule_ModuleBinding").newInstance();
+			Method bindDefaultInterface = binding.getClass().getMethod("bindDefaultInterface", module.getClass());
+			assertEquals(true, bindDefaultInterface.invoke(binding, module));
+			assertSame(module, getField(loadClass(classLoader, "app.BoundModule$IBoundModule"), "_BoundModule").get(null));
+
+			// the field cannot be assigned by the generated code, the runtime falls back to reflection
+			module = loadClass(classLoader, "app.FinalFieldModule").newInstance();
+			binding = loadClass(classLoader, "app.FinalFieldModule_ModuleBinding").newInstance();
+			bindDefaultInterface = binding.getClass().getMethod("bindDefaultInterface", module.getClass());
+			assertEquals(false, bindDefaultInterface.invoke(binding, module));
+		} finally {
+			classLoader.close();
+		}
+	}
+
+	private static Field getField(Class<?> type, String name)
+		throws NoSuchFieldException {
+		Field field = type.getDeclaredField(name);
+		field.setAccessible(true);
+		return field;
+	}
+}
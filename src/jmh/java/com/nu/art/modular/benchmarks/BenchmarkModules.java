@@ -0,0 +1,183 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nu.art.modular.benchmarks;
+
+import com.nu.art.modular.core.Module;
+import com.nu.art.modular.core.ModuleItem;
+import com.nu.art.modular.core.ModuleItemPool;
+import com.nu.art.modular.core.ModuleManager;
+import com.nu.art.modular.core.ModuleManagerBuilder;
+
+/**
+ * The modules the benchmarks are running against.
+ */
+@SuppressWarnings("unchecked")
+public class BenchmarkModules {
+
+	/**
+	 * Implemented by every other module, for the assignable modules lookups.
+	 */
+	public interface BenchmarkListener {
+
+		void onBenchmarkEvent();
+	}
+
+	public static class Module_0
+		extends Module {
+
+		@Override
+		protected void init() {}
+	}
+
+	public static class Module_1
+		extends Module
+		implements BenchmarkListener {
+
+		Module_0 module_0;
+
+		@Override
+		protected void init() {}
+
+		@Override
+		public void onBenchmarkEvent() {}
+	}
+
+	public static class Module_2
+		extends Module {
+
+		Module_0 module_0;
+		Module_1 module_1;
+
+		@Override
+		protected void init() {}
+	}
+
+	public static class Module_3
+		extends Module
+		implements BenchmarkListener {
+
+		Module_1 module_1;
+		Module_2 module_2;
+
+		@Override
+		protected void init() {}
+
+		@Override
+		public void onBenchmarkEvent() {}
+	}
+
+	public static class Module_4
+		extends Module {
+
+		Module_2 module_2;
+		Module_3 module_3;
+
+		@Override
+		protected void init() {}
+	}
+
+	public static class Module_5
+		extends Module
+		implements BenchmarkListener {
+
+		Module_3 module_3;
+		Module_4 module_4;
+
+		@Override
+		protected void init() {}
+
+		@Override
+		public void onBenchmarkEvent() {}
+	}
+
+	public static class Module_6
+		extends Module {
+
+		Module_4 module_4;
+		Module_5 module_5;
+
+		@Override
+		protected void init() {}
+	}
+
+	public static class Module_7
+		extends Module
+		implements BenchmarkListener {
+
+		Module_5 module_5;
+		Module_6 module_6;
+
+		@Override
+		protected void init() {}
+
+		@Override
+		public void onBenchmarkEvent() {}
+	}
+
+	public static class BenchmarkItem
+		extends ModuleItem {
+
+		Module_0 module_0;
+		Module_7 module_7;
+
+		@Override
+		protected void init() {}
+
+		public final void dispose() {
+			release();
+		}
+	}
+
+	public static class ItemsModule
+		extends Module {
+
+		@Override
+		protected void init() {}
+
+		public final BenchmarkItem createItem() {
+			return createModuleItem(BenchmarkItem.class);
+		}
+
+		public final ModuleItemPool<BenchmarkItem> enablePooling(int maxSize) {
+			return enableModuleItemPooling(BenchmarkItem.class, maxSize);
+		}
+	}
+
+	public static final Class<? extends Module>[] ModuleTypes = new Class[]{
+		Module_0.class,
+		Module_1.class,
+		Module_2.class,
+		Module_3.class,
+		Module_4.class,
+		Module_5.class,
+		Module_6.class,
+		Module_7.class,
+		ItemsModule.class,
+	};
+
+	public static ModuleManager buildManager() {
+		return createBuilder().build();
+	}
+
+	public static ModuleManagerBuilder createBuilder() {
+		return new ModuleManagerBuilder().addModules(ModuleTypes);
+	}
+}
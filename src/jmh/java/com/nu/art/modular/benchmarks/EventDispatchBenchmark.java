@@ -0,0 +1,174 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nu.art.modular.benchmarks;
+
+import com.nu.art.core.generics.GenericParamExtractor;
+import com.nu.art.core.generics.Processor;
+import com.nu.art.modular.core.EventChannel;
+import com.nu.art.modular.core.EventDispatcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatches an event to a growing number of listeners, of which only the given ratio matches the event type, single threaded and with all cores
+ * dispatching concurrently.
+ * <br>
+ * The concurrent dispatches only read the listeners state, so they measure the dispatcher rather than contended writes of the listeners.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EventDispatchBenchmark {
+
+	public interface MatchingListener {
+
+		void onEvent();
+
+		int getEvents();
+	}
+
+	public interface OtherListener {
+
+		void onOtherEvent();
+	}
+
+	public static class MatchingListenerImpl
+		implements MatchingListener {
+
+		int events;
+
+		@Override
+		public void onEvent() {
+			events++;
+		}
+
+		@Override
+		public int getEvents() {
+			return events;
+		}
+	}
+
+	public static class OtherListenerImpl
+		implements OtherListener {
+
+		@Override
+		public void onOtherEvent() {}
+	}
+
+	@Param( {"10", "1000", "100000"})
+	public int listenersCount;
+
+	@Param( {"0.01", "0.5", "1"})
+	public double matchRatio;
+
+	private EventDispatcher dispatcher;
+
+	private EventChannel<MatchingListener> channel;
+
+	/**
+	 * The dispatcher holds its listeners weakly.
+	 */
+	private Object[] listeners;
+
+	private Processor<MatchingListener> processor;
+
+	private Processor<MatchingListener> readingProcessor;
+
+	@Setup
+	public void setup() {
+		dispatcher = new EventDispatcher("BenchmarkDispatcher", GenericParamExtractor._GenericParamExtractor);
+		listeners = new Object[listenersCount];
+
+		// spread the matching listeners evenly between the other listeners
+		int matchingCount = Math.max(1, (int) (listenersCount * matchRatio));
+		for (int i = 0; i < listenersCount; i++) {
+			boolean matching = (long) i * matchingCount / listenersCount != (long) (i + 1) * matchingCount / listenersCount;
+			listeners[i] = matching ? new MatchingListenerImpl() : new OtherListenerImpl();
+			dispatcher.addListener(listeners[i]);
+		}
+
+		channel = dispatcher.getChannel(MatchingListener.class);
+		processor = new Processor<MatchingListener>() {
+			@Override
+			public void process(MatchingListener listener) {
+				listener.onEvent();
+			}
+		};
+
+		readingProcessor = new Processor<MatchingListener>() {
+			@Override
+			public void process(MatchingListener listener) {
+				listener.getEvents();
+			}
+		};
+	}
+
+	@Benchmark
+	public void dispatchEvent() {
+		dispatcher.dispatchEvent(null, MatchingListener.class, processor);
+	}
+
+	@Benchmark
+	public void dispatchEvent_ResolvedProcessorType() {
+		dispatcher.dispatchEvent(null, processor);
+	}
+
+	@Benchmark
+	public void dispatchEvent_Channel() {
+		channel.dispatch(processor);
+	}
+
+	/**
+	 * The single threaded baseline of the concurrent dispatches.
+	 */
+	@Benchmark
+	public void dispatchEvent_Reading() {
+		dispatcher.dispatchEvent(null, MatchingListener.class, readingProcessor);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public void dispatchEvent_Contended() {
+		dispatcher.dispatchEvent(null, MatchingListener.class, readingProcessor);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public void dispatchEvent_Channel_Contended() {
+		channel.dispatch(readingProcessor);
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nu.art.modular.benchmarks;
+
+import com.nu.art.modular.benchmarks.BenchmarkModules.Module_0;
+import com.nu.art.modular.benchmarks.BenchmarkModules.Module_1;
+import com.nu.art.modular.benchmarks.BenchmarkModules.Module_2;
+import com.nu.art.modular.benchmarks.BenchmarkModules.Module_3;
+import com.nu.art.modular.benchmarks.BenchmarkModules.Module_4;
+import com.nu.art.modular.benchmarks.BenchmarkModules.Module_5;
+import com.nu.art.modular.benchmarks.BenchmarkModules.Module_6;
+import com.nu.art.modular.benchmarks.BenchmarkModules.Module_7;
+import com.nu.art.modular.core.ModuleManager;
+import com.nu.art.modular.core.ModuleManager.ModuleInjector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Injects the modules into a batch of plain objects, re-injecting the same instances and injecting freshly created ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InjectionBenchmark {
+
+	public static class InjectionTarget {
+
+		Module_0 module_0;
+		Module_1 module_1;
+		Module_2 module_2;
+		Module_3 module_3;
+		Module_4 module_4;
+		Module_5 module_5;
+		Module_6 module_6;
+		Module_7 module_7;
+		String notAModule;
+		int notAModuleEither;
+	}
+
+	public static class DerivedInjectionTarget
+		extends InjectionTarget {
+
+		Module_0 derivedModule_0;
+	}
+
+	@Param( {"1", "100", "10000"})
+	public int instancesCount;
+
+	private ModuleInjector injector;
+
+	private InjectionTarget[] targets;
+
+	@Setup
+	public void setup() {
+		ModuleManager manager = BenchmarkModules.buildManager();
+		injector = manager.getInjector();
+		targets = new InjectionTarget[instancesCount];
+		for (int i = 0; i < instancesCount; i++) {
+			targets[i] = i % 2 == 0 ? new InjectionTarget() : new DerivedInjectionTarget();
+		}
+	}
+
+	@Benchmark
+	public InjectionTarget[] inject() {
+		for (InjectionTarget target : targets) {
+			injector.inject(target);
+		}
+		return targets;
+	}
+
+	@Benchmark
+	public InjectionTarget[] inject_NewInstances() {
+		InjectionTarget[] targets = new InjectionTarget[instancesCount];
+		for (int i = 0; i < instancesCount; i++) {
+			targets[i] = i % 2 == 0 ? new InjectionTarget() : new DerivedInjectionTarget();
+			injector.inject(targets[i]);
+		}
+		return targets;
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.nu.art.modular.benchmarks;
+
+import com.nu.art.modular.benchmarks.BenchmarkModules.BenchmarkItem;
+import com.nu.art.modular.benchmarks.BenchmarkModules.ItemsModule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates and releases module items, with and without pooling, while a given number of other items are alive and registered as listeners.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ModuleItemChurnBenchmark {
+
+	@Param( {"false", "true"})
+	public boolean pooling;
+
+	@Param( {"0", "1000"})
+	public int liveItemsCount;
+
+	private ItemsModule module;
+
+	/**
+	 * Keeps the live items reachable, the dispatcher holds its listeners weakly.
+	 */
+	private BenchmarkItem[] liveItems;
+
+	@Setup
+	public void setup() {
+		module = BenchmarkModules.buildManager().getModule(ItemsModule.class);
+		if (pooling)
+			module.enablePooling(16);
+
+		liveItems = new BenchmarkItem[liveItemsCount];
+		for (int i = 0; i < liveItemsCount; i++) {
+			liveItems[i] = module.createItem();
+		}
+	}
+
+	@Benchmark
+	public BenchmarkItem createAndRelease() {
+		BenchmarkItem item = module.createItem();
+		item.dispose();
+		return item;
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nu.art.modular.benchmarks;
+
+import com.nu.art.modular.benchmarks.BenchmarkModules.BenchmarkListener;
+import com.nu.art.modular.core.Module;
+import com.nu.art.modular.core.ModuleManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the copy-on-write module registry lookup with the previous plain HashMap lookup, and with a synchronized map as the naive thread safe
+ * alternative, single threaded and with all cores looking up modules concurrently.
+ * <br>
+ * Also measures the lookup of the modules assignable to a type, by an interface and by the module base type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RegistryLookupBenchmark {
+
+	private ModuleManager manager;
+
+	private Class<? extends Module>[] moduleTypes;
+
+	private HashMap<Class<? extends Module>, Module> hashMapRegistry;
+
+	private Map<Class<? extends Module>, Module> synchronizedRegistry;
+
+	@Setup
+	public void setup() {
+		manager = BenchmarkModules.buildManager();
+		moduleTypes = BenchmarkModules.ModuleTypes;
+
+		hashMapRegistry = new HashMap<>();
+		for (Class<? extends Module> moduleType : moduleTypes) {
+			hashMapRegistry.put(moduleType, manager.getModule(moduleType));
+		}
+
+		synchronizedRegistry = Collections.synchronizedMap(new HashMap<>(hashMapRegistry));
+	}
+
+	@Benchmark
+	public void getModule(Blackhole blackhole) {
+		for (Class<? extends Module> moduleType : moduleTypes) {
+			blackhole.consume(manager.getModule(moduleType));
+		}
+	}
+
+	@Benchmark
+	public void hashMapLookup(Blackhole blackhole) {
+		for (Class<? extends Module> moduleType : moduleTypes) {
+			blackhole.consume(hashMapRegistry.get(moduleType));
+		}
+	}
+
+	@Benchmark
+	public void synchronizedMapLookup(Blackhole blackhole) {
+		for (Class<? extends Module> moduleType : moduleTypes) {
+			blackhole.consume(synchronizedRegistry.get(moduleType));
+		}
+	}
+
+	@Benchmark
+	public BenchmarkListener[] getModulesAssignableFrom_Interface() {
+		return manager.getModulesAssignableFrom(BenchmarkListener.class);
+	}
+
+	@Benchmark
+	public Module[] getModulesAssignableFrom_Module() {
+		return manager.getModulesAssignableFrom(Module.class);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public void getModule_Contended(Blackhole blackhole) {
+		getModule(blackhole);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public void synchronizedMapLookup_Contended(Blackhole blackhole) {
+		synchronizedMapLookup(blackhole);
+	}
+}
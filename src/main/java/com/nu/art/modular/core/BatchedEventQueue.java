@@ -0,0 +1,193 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nu.art.modular.core;
+
+import com.nu.art.belog.Logger;
+import com.nu.art.core.generics.Processor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sits in front of an {@link EventDispatcher} and delivers events in batches.
+ * <br>
+ * Events are queued per event type, events queued with the same coalescing key within a flush window are merged, and only the last one is delivered.
+ * A batch is delivered when its flush window has elapsed or when it has reached its max size, and each listener is visited once per batch.
+ * <br>
+ * Once the queue was shut down, events are delivered on the enqueuing thread.
+ */
+public final class BatchedEventQueue
+	extends Logger {
+
+	public static final long DefaultFlushWindowMs = 10;
+	public static final int DefaultMaxBatchSize = 100;
+
+	private final class EventBatch<EventType>
+		implements Runnable {
+
+		private final Class<EventType> eventType;
+
+		private volatile long flushWindowMs = DefaultFlushWindowMs;
+
+		private volatile int maxBatchSize = DefaultMaxBatchSize;
+
+		private LinkedHashMap<Object, Processor<EventType>> pending = new LinkedHashMap<>();
+
+		/**
+		 * The delivery scheduled at the end of the flush window of the pending events, cancelled when they are delivered before it.
+		 */
+		private ScheduledFuture<?> scheduledFlush;
+
+		private EventBatch(Class<EventType> eventType) {
+			this.eventType = eventType;
+		}
+
+		private void enqueue(Object coalescingKey, Processor<EventType> processor) {
+			synchronized (this) {
+				pending.put(coalescingKey == null ? new Object() : coalescingKey, processor);
+				if (!shutdown && pending.size() < maxBatchSize) {
+					if (scheduledFlush == null)
+						scheduledFlush = schedule(flushWindowMs);
+
+					if (scheduledFlush != null)
+						return;
+				}
+			}
+
+			// the batch is full, or the queue was shut down and the events are delivered on this thread
+			if (shutdown || schedule(0) == null)
+				flush();
+		}
+
+		/**
+		 * @return The scheduled delivery, or null if the queue was shut down.
+		 */
+		private ScheduledFuture<?> schedule(long delayMs) {
+			try {
+				return scheduler.schedule(this, delayMs, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException e) {
+				return null;
+			}
+		}
+
+		private ArrayList<Processor<EventType>> drain() {
+			synchronized (this) {
+				if (scheduledFlush != null) {
+					scheduledFlush.cancel(false);
+					scheduledFlush = null;
+				}
+
+				if (pending.isEmpty())
+					return null;
+
+				ArrayList<Processor<EventType>> processors = new ArrayList<>(pending.values());
+				pending = new LinkedHashMap<>();
+				return processors;
+			}
+		}
+
+		final void flush() {
+			ArrayList<Processor<EventType>> processors = drain();
+			if (processors == null)
+				return;
+
+			dispatcher.dispatchEvents(null, eventType, processors);
+		}
+
+		@Override
+		public void run() {
+			try {
+				flush();
+			} catch (RuntimeException e) {
+				logError("Error while flushing batched events of type: " + eventType.getSimpleName(), e);
+			}
+		}
+	}
+
+	private final EventDispatcher dispatcher;
+
+	private final ScheduledExecutorService scheduler;
+
+	private final ConcurrentHashMap<Class<?>, EventBatch<?>> batches = new ConcurrentHashMap<>();
+
+	private volatile boolean shutdown;
+
+	BatchedEventQueue(EventDispatcher dispatcher, ScheduledExecutorService scheduler) {
+		this.dispatcher = dispatcher;
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * @param eventType     The event type to configure the batching for.
+	 * @param flushWindowMs The time to accumulate events before delivering them.
+	 * @param maxBatchSize  The number of pending events which triggers an immediate delivery.
+	 */
+	public final void configure(Class<?> eventType, long flushWindowMs, int maxBatchSize) {
+		EventBatch<?> batch = getBatch(eventType);
+		batch.flushWindowMs = flushWindowMs;
+		batch.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * @param eventType     The event type to dispatch.
+	 * @param coalescingKey Events of the same type and key which are pending delivery are merged, null if this event must not be merged.
+	 * @param processor     The processor to deliver to each of the listeners.
+	 */
+	public final <EventType> void enqueue(Class<EventType> eventType, Object coalescingKey, Processor<EventType> processor) {
+		getBatch(eventType).enqueue(coalescingKey, processor);
+	}
+
+	/**
+	 * Delivers all the pending events on the calling thread.
+	 */
+	public final void flush() {
+		for (EventBatch<?> batch : batches.values()) {
+			batch.flush();
+		}
+	}
+
+	/**
+	 * Stops the scheduled deliveries, and delivers all the pending events on the calling thread.
+	 * <br>
+	 * Events enqueued afterwards, by modules which are still running, are delivered on the enqueuing thread.
+	 */
+	final void shutdown() {
+		shutdown = true;
+		scheduler.shutdownNow();
+		flush();
+	}
+
+	@SuppressWarnings("unchecked")
+	private <EventType> EventBatch<EventType> getBatch(Class<EventType> eventType) {
+		EventBatch<EventType> batch = (EventBatch<EventType>) batches.get(eventType);
+		if (batch != null)
+			return batch;
+
+		batch = new EventBatch<>(eventType);
+		EventBatch<EventType> existing = (EventBatch<EventType>) batches.putIfAbsent(eventType, batch);
+		return existing != null ? existing : batch;
+	}
+}
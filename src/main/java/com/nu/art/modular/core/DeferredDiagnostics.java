@@ -0,0 +1,114 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nu.art.modular.core;
+
+import com.nu.art.belog.Logger;
+import com.nu.art.modular.core.ModuleExecutors.DaemonThreadFactory;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the startup diagnostics, like the modules details, off the startup critical path: the diagnostics are buffered in memory until the manager is
+ * ready, and are then written in order on a background thread.
+ */
+final class DeferredDiagnostics
+	extends Logger {
+
+	private final ArrayList<Runnable> pending = new ArrayList<>();
+
+	/**
+	 * A single thread which is only alive while there are diagnostics to write, so the diagnostics are written in the order they were deferred.
+	 */
+	private final ThreadPoolExecutor writer = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+	                                                                 new DaemonThreadFactory("module-diagnostics"));
+
+	private boolean flushed;
+
+	/**
+	 * @param diagnostic Writes the diagnostic, buffered until {@link #flush()}, and written on the background writer afterwards.
+	 */
+	final synchronized void defer(Runnable diagnostic) {
+		if (flushed)
+			writer.execute(wrap(diagnostic));
+		else
+			pending.add(diagnostic);
+	}
+
+	/**
+	 * Hands the buffered diagnostics to the background writer.
+	 */
+	final synchronized void flush() {
+		flushed = true;
+		for (Runnable diagnostic : pending) {
+			writer.execute(wrap(diagnostic));
+		}
+		pending.clear();
+	}
+
+	/**
+	 * @return Whether all the diagnostics deferred so far were written within the timeout.
+	 */
+	final boolean await(long timeoutMs)
+		throws InterruptedException {
+		final CountDownLatch written = new CountDownLatch(1);
+		synchronized (this) {
+			if (!flushed)
+				return pending.isEmpty();
+
+			if (writer.isShutdown())
+				return writer.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+
+			writer.execute(new Runnable() {
+				@Override
+				public void run() {
+					written.countDown();
+				}
+			});
+		}
+
+		return written.await(timeoutMs, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Writes the remaining diagnostics, and lets the background writer terminate once they are written.
+	 */
+	final synchronized void shutdown() {
+		flush();
+		writer.shutdown();
+	}
+
+	private Runnable wrap(final Runnable diagnostic) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				try {
+					diagnostic.run();
+				} catch (Throwable t) {
+					logError("Error while writing diagnostics", t);
+				}
+			}
+		};
+	}
+}
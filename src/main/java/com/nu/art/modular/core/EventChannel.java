@@ -0,0 +1,59 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nu.art.modular.core;
+
+import com.nu.art.core.generics.Processor;
+import com.nu.art.modular.core.EventDispatcher.ListenerRoute;
+import com.nu.art.modular.interfaces.ConsumableProcessor;
+
+/**
+ * A reusable handle to dispatch events of a single listener type.
+ * <br>
+ * The channel holds the already resolved listeners of its type, which the dispatcher keeps up to date as listeners are added and removed, so a
+ * dispatch through the channel performs no reflection and no type checks.
+ */
+public final class EventChannel<ListenerType> {
+
+	private final EventDispatcher dispatcher;
+
+	private final ListenerRoute route;
+
+	EventChannel(EventDispatcher dispatcher, ListenerRoute route) {
+		this.dispatcher = dispatcher;
+		this.route = route;
+	}
+
+	@SuppressWarnings("unchecked")
+	public final Class<ListenerType> getListenerType() {
+		return (Class<ListenerType>) route.eventType;
+	}
+
+	public final void dispatch(Processor<ListenerType> processor) {
+		dispatcher.dispatchEvent(null, route, processor);
+	}
+
+	/**
+	 * @return The listener which consumed the event, or null if none of the listeners consumed it.
+	 */
+	public final ListenerType dispatchConsumable(ConsumableProcessor<ListenerType> processor) {
+		return dispatcher.dispatchConsumableEvent(null, route, processor);
+	}
+}
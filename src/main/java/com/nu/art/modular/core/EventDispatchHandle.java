@@ -0,0 +1,109 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nu.art.modular.core;
+
+import com.nu.art.modular.exceptions.EventDispatchException;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The completion handle of an asynchronous event dispatch.
+ * <br>
+ * Ignore it for fire-and-forget delivery, or {@link #await()} it to block until every listener has processed the event.
+ */
+public final class EventDispatchHandle {
+
+	private final Class<?> eventType;
+
+	private final CountDownLatch pendingListeners;
+
+	private final ArrayList<Throwable> errors = new ArrayList<>();
+
+	EventDispatchHandle(Class<?> eventType, int listenersCount) {
+		this.eventType = eventType;
+		this.pendingListeners = new CountDownLatch(listenersCount);
+	}
+
+	final void onListenerError(Object listener, Throwable t) {
+		synchronized (errors) {
+			errors.add(new RuntimeException("Error while processing event:\n + eventType:" + eventType.getSimpleName() + "\n listenerType:" + listener.getClass(), t));
+		}
+	}
+
+	final void onListenerCompleted() {
+		pendingListeners.countDown();
+	}
+
+	public final Class<?> getEventType() {
+		return eventType;
+	}
+
+	/**
+	 * @return Whether all the listeners have completed processing the event.
+	 */
+	public final boolean isDone() {
+		return pendingListeners.getCount() == 0;
+	}
+
+	/**
+	 * @return The errors thrown by the listeners so far.
+	 */
+	public final Throwable[] getErrors() {
+		synchronized (errors) {
+			return errors.toArray(new Throwable[errors.size()]);
+		}
+	}
+
+	/**
+	 * Blocks until all the listeners have completed processing the event.
+	 *
+	 * @throws EventDispatchException if any of the listeners has failed.
+	 */
+	public final void await()
+		throws InterruptedException {
+		pendingListeners.await();
+		throwIfFailed();
+	}
+
+	/**
+	 * Blocks until all the listeners have completed processing the event, or until the timeout has elapsed.
+	 *
+	 * @return true if all the listeners have completed, false if the timeout has elapsed.
+	 *
+	 * @throws EventDispatchException if all the listeners have completed and any of them has failed.
+	 */
+	public final boolean await(long timeout, TimeUnit unit)
+		throws InterruptedException {
+		if (!pendingListeners.await(timeout, unit))
+			return false;
+
+		throwIfFailed();
+		return true;
+	}
+
+	private void throwIfFailed() {
+		Throwable[] errors = getErrors();
+		if (errors.length > 0)
+			throw new EventDispatchException(eventType, errors);
+	}
+}
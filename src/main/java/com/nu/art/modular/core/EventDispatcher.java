@@ -26,23 +26,87 @@ import com.nu.art.core.exceptions.runtime.WhoCalledThis;
 import com.nu.art.core.generics.GenericParamExtractor;
 import com.nu.art.core.generics.Processor;
 import com.nu.art.core.tools.ArrayTools;
+import com.nu.art.modular.exceptions.EventDispatchException;
+import com.nu.art.modular.metrics.DispatchMetrics;
+import com.nu.art.modular.interfaces.ConsumableProcessor;
+import com.nu.art.modular.interfaces.PrioritizedListener;
+import com.nu.art.modular.metrics.DispatchMetrics.EventMetrics;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Created by TacB0sS on 16-Jul 2017.
+ * <br>
+ * Unless {@link #own()}ed by a thread, a dispatcher can be used concurrently from any number of threads: the listener arrays are copy-on-write
+ * snapshots which are only replaced while holding the listeners lock, and dispatching reads the current snapshot without locking.
+ * <br>
+ * Listeners are held weakly, collected listeners are enqueued by the GC and removed on the next listeners change, so dispatching never allocates.
+ * <br>
+ * Events are delivered in the order of the listeners {@link PrioritizedListener priority}, and listeners of the same priority in registration order.
  */
 
 public class EventDispatcher
 	extends Logger {
 
-	private ArrayList<WeakReference<Object>> toBeRemoved = new ArrayList<>();
+	/**
+	 * A weak reference to a listener, enqueued in the dispatcher's queue once the listener is collected.
+	 */
+	static final class ListenerReference
+		extends WeakReference<Object> {
 
-	@SuppressWarnings("unchecked")
-	private WeakReference<Object>[] _listeners = new WeakReference[0];
+		private final int priority;
+
+		private ListenerReference(Object listener, ReferenceQueue<Object> queue) {
+			super(listener, queue);
+			priority = listener instanceof PrioritizedListener ? ((PrioritizedListener) listener).getListenerPriority() : 0;
+		}
+	}
+
+	/**
+	 * Holds the listeners that match a single event type, so a dispatch only iterates over the relevant listeners.
+	 */
+	static final class ListenerRoute {
 
-	private Thread ownerThread;
+		final Class<?> eventType;
+
+		volatile ListenerReference[] listeners = new ListenerReference[0];
+
+		private ListenerRoute(Class<?> eventType) {
+			this.eventType = eventType;
+		}
+	}
+
+	private final Object listenersLock = new Object();
+
+	private volatile ListenerReference[] _listeners = new ListenerReference[0];
+
+	/**
+	 * The references of the collected listeners, drained while holding the listeners lock.
+	 */
+	private final ReferenceQueue<Object> collectedListeners = new ReferenceQueue<>();
+
+	/**
+	 * Event type to matching listeners, each route is built lazily on the first dispatch of its event type and kept up to date by
+	 * {@link #addListener(Object)} and {@link #removeListener(Object)}.
+	 */
+	private final ConcurrentHashMap<Class<?>, ListenerRoute> routes = new ConcurrentHashMap<>();
+
+	/**
+	 * Processor type to the event type it processes, so the generic type is only extracted once per processor class.
+	 */
+	private final ConcurrentHashMap<Class<?>, Class<?>> processorEventTypes = new ConcurrentHashMap<>();
+
+	private volatile Thread ownerThread;
+
+	private volatile DispatchMetrics metrics;
 
 	private final GenericParamExtractor extractor;
 
@@ -52,12 +116,74 @@ public class EventDispatcher
 	}
 
 	public final void addListener(Object listener) {
-		for (WeakReference<Object> ref : _listeners) {
-			if (ref.get() == listener)
+		addListener(listener, null);
+	}
+
+	/**
+	 * @param listenerTypes All the types the listener is assignable to, used to update only the routes of these types, or null to check every route.
+	 */
+	final void addListener(Object listener, Class<?>[] listenerTypes) {
+		synchronized (listenersLock) {
+			reclaimCollectedListeners();
+			for (ListenerReference ref : _listeners) {
+				if (ref.get() == listener)
+					return;
+			}
+
+			ListenerReference listenerRef = new ListenerReference(listener, collectedListeners);
+			_listeners = insertByPriority(_listeners, listenerRef);
+
+			if (listenerTypes != null) {
+				for (Class<?> listenerType : listenerTypes) {
+					ListenerRoute route = routes.get(listenerType);
+					if (route == null)
+						continue;
+
+					route.listeners = insertByPriority(route.listeners, listenerRef);
+				}
 				return;
+			}
+
+			Class<?> listenerType = listener.getClass();
+			for (ListenerRoute route : routes.values()) {
+				if (!route.eventType.isAssignableFrom(listenerType))
+					continue;
+
+				route.listeners = insertByPriority(route.listeners, listenerRef);
+			}
 		}
+	}
+
+	/**
+	 * @param metrics The metrics to record the dispatched events to, or null to stop recording.
+	 */
+	public final void setMetrics(DispatchMetrics metrics) {
+		this.metrics = metrics;
+	}
 
-		_listeners = ArrayTools.appendElement(_listeners, new WeakReference<>(listener));
+	public final DispatchMetrics getMetrics() {
+		return metrics;
+	}
+
+	private EventMetrics getEventMetrics(Class<?> eventType) {
+		DispatchMetrics metrics = this.metrics;
+		return metrics == null ? null : metrics.getEventMetrics(eventType);
+	}
+
+	/**
+	 * @return A copy of the listeners with the given listener placed after all the listeners of a higher or an equal priority.
+	 */
+	private static ListenerReference[] insertByPriority(ListenerReference[] listeners, ListenerReference listener) {
+		int index = listeners.length;
+		while (index > 0 && listeners[index - 1].priority < listener.priority) {
+			index--;
+		}
+
+		ListenerReference[] newListeners = new ListenerReference[listeners.length + 1];
+		System.arraycopy(listeners, 0, newListeners, 0, index);
+		newListeners[index] = listener;
+		System.arraycopy(listeners, index, newListeners, index + 1, listeners.length - index);
+		return newListeners;
 	}
 
 	public final EventDispatcher own() {
@@ -72,39 +198,294 @@ public class EventDispatcher
 	@SuppressWarnings("unchecked")
 	public <EventType> void dispatchEvent(WhoCalledThis whoCalledThis, Processor<EventType> processor) {
 		verifyThread();
-		Class<EventType> eventType = extractor.extractGenericType(Processor.class, processor, 0);
+		Class<EventType> eventType = (Class<EventType>) processorEventTypes.get(processor.getClass());
+		if (eventType == null) {
+			eventType = extractor.extractGenericType(Processor.class, processor, 0);
+			processorEventTypes.put(processor.getClass(), eventType);
+		}
+
 		dispatchEvent(whoCalledThis, eventType, processor);
 	}
 
-	@SuppressWarnings("unchecked")
 	public <EventType> void dispatchEvent(WhoCalledThis whoCalledThis, Class<EventType> eventType, Processor<EventType> processor) {
+		dispatchEvent(whoCalledThis, getRoute(eventType), processor);
+	}
+
+	/**
+	 * @return A channel to dispatch events of the given type directly to their pre-resolved listeners.
+	 */
+	public final <EventType> EventChannel<EventType> getChannel(Class<EventType> eventType) {
+		return new EventChannel<>(this, getRoute(eventType));
+	}
+
+	@SuppressWarnings("unchecked")
+	final <EventType> void dispatchEvent(WhoCalledThis whoCalledThis, ListenerRoute route, Processor<EventType> processor) {
 		verifyThread();
 
-		for (WeakReference<Object> ref : _listeners) {
+		EventMetrics eventMetrics = getEventMetrics(route.eventType);
+		int fanOut = 0;
+		for (ListenerReference ref : route.listeners) {
 			Object listener = ref.get();
-			if (listener == null) {
-				toBeRemoved.add(ref);
+			if (listener == null)
 				continue;
+
+			long startNanos = eventMetrics == null ? 0 : System.nanoTime();
+			try {
+				processor.process((EventType) listener);
+			} catch (RuntimeException t) {
+				if (whoCalledThis != null)
+					logError(whoCalledThis);
+
+				throw new RuntimeException("Error while processing event:\n + eventType:" + route.eventType.getSimpleName() + "\n listenerType:" + listener.getClass(), t);
 			}
 
-			if (!eventType.isAssignableFrom(listener.getClass()))
+			if (eventMetrics != null)
+				eventMetrics.onListenerProcessed(listener.getClass(), System.nanoTime() - startNanos);
+			fanOut++;
+		}
+
+		if (eventMetrics != null)
+			eventMetrics.onDispatched(fanOut);
+	}
+
+	/**
+	 * Delivers the event to the matching listeners in priority order, until one of the listeners consumes it.
+	 *
+	 * @return The listener which consumed the event, or null if none of the listeners consumed it.
+	 */
+	public <EventType> EventType dispatchConsumableEvent(WhoCalledThis whoCalledThis, Class<EventType> eventType, ConsumableProcessor<EventType> processor) {
+		return dispatchConsumableEvent(whoCalledThis, getRoute(eventType), processor);
+	}
+
+	@SuppressWarnings("unchecked")
+	final <EventType> EventType dispatchConsumableEvent(WhoCalledThis whoCalledThis, ListenerRoute route, ConsumableProcessor<EventType> processor) {
+		verifyThread();
+
+		EventMetrics eventMetrics = getEventMetrics(route.eventType);
+		int fanOut = 0;
+		EventType consumer = null;
+		for (ListenerReference ref : route.listeners) {
+			Object listener = ref.get();
+			if (listener == null)
 				continue;
 
+			long startNanos = eventMetrics == null ? 0 : System.nanoTime();
+			boolean consumed;
 			try {
-				processor.process((EventType) listener);
+				consumed = processor.process((EventType) listener);
 			} catch (RuntimeException t) {
 				if (whoCalledThis != null)
 					logError(whoCalledThis);
 
-				throw new RuntimeException("Error while processing event:\n + eventType:" + eventType.getSimpleName() + "\n listenerType:" + listener.getClass(), t);
+				throw new RuntimeException("Error while processing event:\n + eventType:" + route.eventType.getSimpleName() + "\n listenerType:" + listener.getClass(), t);
+			}
+
+			if (eventMetrics != null)
+				eventMetrics.onListenerProcessed(listener.getClass(), System.nanoTime() - startNanos);
+			fanOut++;
+
+			if (consumed) {
+				consumer = (EventType) listener;
+				break;
 			}
 		}
 
-		_listeners = ArrayTools.removeElements(_listeners, toBeRemoved);
-		toBeRemoved.clear();
+		if (eventMetrics != null)
+			eventMetrics.onDispatched(fanOut);
+
+		return consumer;
+	}
+
+	/**
+	 * Delivers a batch of events of the same type, the matching listeners are resolved once and each listener processes the whole batch in order.
+	 * <br>
+	 * A failing invocation does not prevent the delivery of the rest of the batch, to the failing listener or to the other listeners.
+	 *
+	 * @throws EventDispatchException once the whole batch was delivered, if any of the invocations has failed.
+	 */
+	@SuppressWarnings("unchecked")
+	public <EventType> void dispatchEvents(WhoCalledThis whoCalledThis, Class<EventType> eventType, List<Processor<EventType>> processors) {
+		verifyThread();
+
+		EventMetrics eventMetrics = getEventMetrics(eventType);
+		ArrayList<Throwable> errors = null;
+		int fanOut = 0;
+		for (ListenerReference ref : getRoute(eventType).listeners) {
+			Object listener = ref.get();
+			if (listener == null)
+				continue;
+
+			for (Processor<EventType> processor : processors) {
+				long startNanos = eventMetrics == null ? 0 : System.nanoTime();
+				try {
+					processor.process((EventType) listener);
+				} catch (RuntimeException t) {
+					if (errors == null)
+						errors = new ArrayList<>();
+					errors.add(new RuntimeException("Error while processing event:\n + eventType:" + eventType.getSimpleName() + "\n listenerType:" + listener.getClass(), t));
+					continue;
+				}
+
+				if (eventMetrics != null)
+					eventMetrics.onListenerProcessed(listener.getClass(), System.nanoTime() - startNanos);
+			}
+			fanOut++;
+		}
+
+		if (eventMetrics != null)
+			for (int i = 0; i < processors.size(); i++) {
+				eventMetrics.onDispatched(fanOut);
+			}
+
+		if (errors == null)
+			return;
+
+		if (whoCalledThis != null)
+			logError(whoCalledThis);
+
+		throw new EventDispatchException(eventType, errors.toArray(new Throwable[errors.size()]));
+	}
+
+	/**
+	 * Delivers the event to each of the matching listeners as a separate task on the given executor, and returns immediately.
+	 * <br>
+	 * Unlike {@link #dispatchEvent(WhoCalledThis, Class, Processor)}, a failing listener does not prevent the delivery to the other listeners, the errors are
+	 * aggregated in the returned handle.
+	 */
+	@SuppressWarnings("unchecked")
+	public <EventType> EventDispatchHandle dispatchEventAsync(Executor executor, Class<EventType> eventType, final Processor<EventType> processor) {
+		verifyThread();
+
+		ArrayList<EventType> listeners = new ArrayList<>();
+		for (ListenerReference ref : getRoute(eventType).listeners) {
+			Object listener = ref.get();
+			if (listener == null)
+				continue;
+
+			listeners.add((EventType) listener);
+		}
+
+		final EventMetrics eventMetrics = getEventMetrics(eventType);
+		if (eventMetrics != null)
+			eventMetrics.onDispatched(listeners.size());
+
+		final EventDispatchHandle handle = new EventDispatchHandle(eventType, listeners.size());
+		for (final EventType listener : listeners) {
+			Runnable delivery = new Runnable() {
+				@Override
+				public void run() {
+					try {
+						long startNanos = eventMetrics == null ? 0 : System.nanoTime();
+						processor.process(listener);
+						if (eventMetrics != null)
+							eventMetrics.onListenerProcessed(listener.getClass(), System.nanoTime() - startNanos);
+					} catch (Throwable t) {
+						handle.onListenerError(listener, t);
+					} finally {
+						handle.onListenerCompleted();
+					}
+				}
+			};
+
+			try {
+				executor.execute(delivery);
+			} catch (RejectedExecutionException e) {
+				handle.onListenerError(listener, e);
+				handle.onListenerCompleted();
+			}
+		}
+
+		return handle;
+	}
+
+	private ListenerRoute getRoute(Class<?> eventType) {
+		ListenerRoute route = routes.get(eventType);
+		if (route != null)
+			return route;
+
+		synchronized (listenersLock) {
+			route = routes.get(eventType);
+			if (route != null)
+				return route;
+
+			reclaimCollectedListeners();
+			route = new ListenerRoute(eventType);
+			for (ListenerReference ref : _listeners) {
+				Object listener = ref.get();
+				if (listener == null || !eventType.isAssignableFrom(listener.getClass()))
+					continue;
+
+				// the listeners are already sorted by priority
+				route.listeners = ArrayTools.appendElement(route.listeners, ref);
+			}
+
+			routes.put(eventType, route);
+			return route;
+		}
+	}
+
+	/**
+	 * Removes the references of the listeners which were collected since the last listeners change, MUST be called while holding the listeners lock.
+	 */
+	private void reclaimCollectedListeners() {
+		Reference<?> ref = collectedListeners.poll();
+		if (ref == null)
+			return;
+
+		ArrayList<Reference<?>> toBeRemoved = new ArrayList<>();
+		for (; ref != null; ref = collectedListeners.poll()) {
+			toBeRemoved.add(ref);
+		}
+
+		removeReferences(toBeRemoved);
+	}
+
+	/**
+	 * Removes the references from all the listener arrays, MUST be called while holding the listeners lock.
+	 */
+	private void removeReferences(ArrayList<? extends Reference<?>> references) {
+		HashSet<Reference<?>> toBeRemoved = new HashSet<Reference<?>>(references);
+		_listeners = removeReferences(_listeners, toBeRemoved);
+		for (ListenerRoute route : routes.values()) {
+			route.listeners = removeReferences(route.listeners, toBeRemoved);
+		}
+	}
+
+	private static ListenerReference[] removeReferences(ListenerReference[] listeners, HashSet<Reference<?>> toBeRemoved) {
+		int remaining = 0;
+		ListenerReference[] newListeners = new ListenerReference[listeners.length];
+		for (ListenerReference listener : listeners) {
+			if (!toBeRemoved.contains(listener))
+				newListeners[remaining++] = listener;
+		}
+
+		// the array is kept as is when none of its references were removed, so dispatching threads keep their cached snapshot
+		if (remaining == listeners.length)
+			return listeners;
+
+		ListenerReference[] trimmed = new ListenerReference[remaining];
+		System.arraycopy(newListeners, 0, trimmed, 0, remaining);
+		return trimmed;
+	}
+
+	/**
+	 * @return The number of registered listeners, including collected listeners which were not reclaimed yet.
+	 */
+	public final int getListenersCount() {
+		return _listeners.length;
+	}
+
+	/**
+	 * Removes the references of the listeners which were collected, this happens anyway on the next listeners change.
+	 */
+	public final void reclaimListeners() {
+		synchronized (listenersLock) {
+			reclaimCollectedListeners();
+		}
 	}
 
 	private void verifyThread() {
+		Thread ownerThread = this.ownerThread;
 		if (ownerThread != null && Thread.currentThread() != ownerThread)
 			throw new BadImplementationException("Dispatching event must be done on a single thread, owner thread: " + ownerThread.getName() + ", calling thread: " + Thread
 				.currentThread()
@@ -112,18 +493,18 @@ public class EventDispatcher
 	}
 
 	public void removeListener(Object listener) {
-		for (WeakReference<Object> ref : _listeners) {
-			if (ref.get() == null) {
-				toBeRemoved.add(ref);
-				continue;
-			}
+		synchronized (listenersLock) {
+			reclaimCollectedListeners();
+			for (ListenerReference ref : _listeners) {
+				if (ref.get() != listener)
+					continue;
 
-			if (ref.get() == listener) {
+				ref.clear();
+				ArrayList<ListenerReference> toBeRemoved = new ArrayList<>();
 				toBeRemoved.add(ref);
+				removeReferences(toBeRemoved);
+				return;
 			}
 		}
-
-		_listeners = ArrayTools.removeElements(_listeners, toBeRemoved);
-		toBeRemoved.clear();
 	}
 }
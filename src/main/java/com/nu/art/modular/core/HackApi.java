@@ -1,5 +1,7 @@
 package com.nu.art.modular.core;
 
+import com.nu.art.core.exceptions.runtime.BadImplementationException;
+
 /**
  * While I Completely disagree with this hack I have been ask number of times about this capability.
  *
@@ -9,15 +11,35 @@ package com.nu.art.modular.core;
 @Deprecated
 public class HackApi {
 
+	/**
+	 * There is no single module manager to register with anymore, use {@link #registerModuleType(ModuleManager, Class)} instead.
+	 *
+	 * @throws BadImplementationException Always.
+	 */
 	@Deprecated
 	public static <_Module extends Module> void registerModuleType(Class<_Module> moduleType) {
-		ModuleManager.ModuleManager.logDebug("Registering runtime Module Type: " + moduleType.getSimpleName());
-		ModuleManager.ModuleManager.registerModuleType(moduleType);
+		throw new BadImplementationException("Cannot register module type " + moduleType.getName() + " without a module manager, use registerModuleType(ModuleManager, Class)");
+	}
+
+	@Deprecated
+	public static <_Module extends Module> void registerModuleType(ModuleManager manager, Class<_Module> moduleType) {
+		manager.logDebug("Registering runtime Module Type: " + moduleType.getSimpleName());
+		manager.registerModuleType(moduleType);
 	}
 
+	/**
+	 * There is no single module manager to register with anymore, use {@link #registerModuleInstance(ModuleManager, Module)} instead.
+	 *
+	 * @throws BadImplementationException Always.
+	 */
 	@Deprecated
 	public static <_Module extends Module> void registerModuleInstance(_Module module) {
-		ModuleManager.ModuleManager.logDebug("Registering runtime Module instance: " + module);
-		ModuleManager.ModuleManager.registerModuleInstance(module);
+		throw new BadImplementationException("Cannot register module " + module + " without a module manager, use registerModuleInstance(ModuleManager, Module)");
+	}
+
+	@Deprecated
+	public static <_Module extends Module> void registerModuleInstance(ModuleManager manager, _Module module) {
+		manager.logDebug("Registering runtime Module instance: " + module);
+		manager.registerModuleInstance(module);
 	}
 }
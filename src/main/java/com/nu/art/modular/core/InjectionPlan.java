@@ -0,0 +1,76 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nu.art.modular.core;
+
+import com.nu.art.core.exceptions.runtime.BadImplementationException;
+
+import java.lang.reflect.Field;
+
+/**
+ * The resolved injection of a single type, computed once per type and replayed for every instance of that type.
+ * <br>
+ * A plan either delegates to the generated {@link ModuleBinding} of the type, or holds the type's module fields, already made accessible.
+ */
+final class InjectionPlan {
+
+	final Class<? extends Module>[] injectedTypes;
+
+	private final ModuleBinding<Object> binding;
+
+	private final Field[] fields;
+
+	@SuppressWarnings("unchecked")
+	InjectionPlan(ModuleBinding<Object> binding) {
+		this.binding = binding;
+		this.fields = null;
+		this.injectedTypes = (Class<? extends Module>[]) binding.getInjectedTypes();
+	}
+
+	@SuppressWarnings("unchecked")
+	InjectionPlan(Field[] fields) {
+		this.binding = null;
+		this.fields = fields;
+		this.injectedTypes = new Class[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			fields[i].setAccessible(true);
+			injectedTypes[i] = (Class<? extends Module>) fields[i].getType();
+		}
+	}
+
+	final Field[] getFields() {
+		return fields;
+	}
+
+	final void inject(Object instance, Object[] modules) {
+		if (binding != null) {
+			binding.inject(instance, modules);
+			return;
+		}
+
+		for (int i = 0; i < fields.length; i++) {
+			try {
+				fields[i].set(instance, modules[i]);
+			} catch (IllegalAccessException e) {
+				throw new BadImplementationException("Cannot set module to field: " + fields[i], e);
+			}
+		}
+	}
+}
@@ -25,8 +25,8 @@ import com.nu.art.core.generics.Processor;
 import com.nu.art.core.tools.ArrayTools;
 import com.nu.art.core.utils.DebugFlags;
 import com.nu.art.core.utils.DebugFlags.DebugFlag;
+import com.nu.art.modular.interfaces.ConsumableProcessor;
 import com.nu.art.modular.interfaces.ModuleManagerDelegator;
-import com.nu.art.reflection.tools.ReflectiveTools;
 
 import java.lang.reflect.Field;
 
@@ -41,6 +41,13 @@ public abstract class Module
 
 	private Class<?> iClass;
 
+	/**
+	 * Whether the default interface was already resolved, so a null {@link #iClass} means the module has no default interface.
+	 */
+	private boolean iClassResolved;
+
+	private boolean sequentialInit;
+
 	final void setMainManager(ModuleManager mainManager) {
 		this.moduleManager = mainManager;
 	}
@@ -60,6 +67,39 @@ public abstract class Module
 		this.iClass = iClass;
 	}
 
+	/**
+	 * When the manager initializes modules in parallel, a sequential module is initialized on the initializing thread, only once all the modules being
+	 * initialized in parallel have completed, and no other module is initialized until it completes.
+	 *
+	 * @param sequentialInit Whether this module cannot tolerate being initialized concurrently with other modules.
+	 */
+	protected final void setSequentialInit(boolean sequentialInit) {
+		this.sequentialInit = sequentialInit;
+	}
+
+	/**
+	 * Sets the default interface resolved by an earlier boot, see {@link StartupCache}.
+	 */
+	final void setResolvedInterface(Class<?> iClass) {
+		this.iClass = iClass;
+		this.iClassResolved = true;
+	}
+
+	/**
+	 * @return The default interface the module was assigned to, or null if it was assigned via its binding or has no default interface.
+	 */
+	final Class<?> getResolvedInterface() {
+		return iClass;
+	}
+
+	final boolean isInterfaceResolved() {
+		return iClassResolved;
+	}
+
+	final boolean isSequentialInit() {
+		return sequentialInit;
+	}
+
 	protected final <Type> Type[] getModulesAssignableFrom(Class<Type> classType) {
 		return moduleManager.getModulesAssignableFrom(classType);
 	}
@@ -71,26 +111,57 @@ public abstract class Module
 	}
 
 	protected final <Type extends ModuleItem> Type createModuleItem(Class<Type> moduleItemType) {
-		Type moduleItem = ReflectiveTools.newInstance(moduleItemType);
-		moduleItem.setModuleManager(moduleManager);
-		moduleItem._prepare();
-		moduleItem.init();
-		return moduleItem;
+		return moduleManager.createModuleItem(moduleItemType);
+	}
+
+	/**
+	 * @see ModuleManager#enableModuleItemPooling(Class, int)
+	 */
+	protected final <Type extends ModuleItem> ModuleItemPool<Type> enableModuleItemPooling(Class<Type> moduleItemType, int maxSize) {
+		return moduleManager.enableModuleItemPooling(moduleItemType, maxSize);
 	}
 
 	protected final <ListenerType> void dispatchModuleEvent(String message, Class<ListenerType> listenerType, Processor<ListenerType> processor) {
 		moduleManager.dispatchModuleEvent(this, message, listenerType, processor);
 	}
 
+	protected final <ListenerType> ListenerType dispatchConsumableModuleEvent(String message, Class<ListenerType> listenerType,
+	                                                                        ConsumableProcessor<ListenerType> processor) {
+		return moduleManager.dispatchConsumableModuleEvent(this, message, listenerType, processor);
+	}
+
+	protected final <ListenerType> EventDispatchHandle dispatchModuleEventAsync(String message, Class<ListenerType> listenerType, Processor<ListenerType> processor) {
+		return moduleManager.dispatchModuleEventAsync(this, message, listenerType, processor);
+	}
+
+	protected final <ListenerType> void dispatchModuleEventBatched(String message, Object coalescingKey, Class<ListenerType> listenerType,
+	                                                               Processor<ListenerType> processor) {
+		moduleManager.dispatchModuleEventBatched(this, message, coalescingKey, listenerType, processor);
+	}
+
 	protected abstract void init();
 
+	/**
+	 * Releases the module resources when its manager is disposed, called only once all the modules depending on this module were disposed.
+	 *
+	 * @see ModuleManager#dispose(long)
+	 */
+	protected void dispose() {}
+
 	protected void printDetails() {}
 
 	protected void validateModule(ValidationResult result) {}
 
 	final void assignToDefaultInterface() {
-		if (iClass == null)
-			iClass = deriveiClassFromMyself();
+		if (iClass == null) {
+			ModuleBinding<Module> binding = ModuleBindings.getBinding(getClass());
+			if (binding != null && binding.bindDefaultInterface(this))
+				return;
+
+			if (!iClassResolved)
+				iClass = deriveiClassFromMyself();
+			iClassResolved = true;
+		}
 
 		if (iClass == null)
 			return;
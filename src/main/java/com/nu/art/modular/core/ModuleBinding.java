@@ -0,0 +1,58 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nu.art.modular.core;
+
+/**
+ * The contract of the classes generated at compile time by the module-manager-processor for each {@link Module} and {@link ModuleItem} type.
+ * <br>
+ * A generated binding is named after its type, for example <i>com.app.MyModule</i> is bound by <i>com.app.MyModule_ModuleBinding</i>, with '_' escaped
+ * as "__" and the nested types '$' separator escaped as "_0", so <i>com.app.My_Module$Item</i> is bound by <i>com.app.My__Module_0Item_ModuleBinding</i>.
+ * When no binding is found for a type, the module manager falls back to reflection.
+ *
+ * @param <Type> The bound type.
+ */
+public interface ModuleBinding<Type> {
+
+	String BindingSuffix = "_ModuleBinding";
+
+	/**
+	 * @return The module types of the fields to inject, in the order they are expected by {@link #inject(Object, Object[])}.
+	 */
+	Class<?>[] getInjectedTypes();
+
+	/**
+	 * @param instance The instance to inject the modules to.
+	 * @param modules  The modules to inject, resolved according to {@link #getInjectedTypes()}.
+	 */
+	void inject(Type instance, Object[] modules);
+
+	/**
+	 * @return All the types the bound type is assignable to, or null if some of them are not accessible to the generated code.
+	 */
+	Class<?>[] getListenerTypes();
+
+	/**
+	 * Assigns the module instance to its default interface field, if the bound type declares one which is accessible to the generated code.
+	 *
+	 * @return Whether the instance was assigned, otherwise the default interface is resolved via reflection.
+	 */
+	boolean bindDefaultInterface(Type instance);
+}
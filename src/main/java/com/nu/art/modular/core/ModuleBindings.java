@@ -0,0 +1,141 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nu.art.modular.core;
+
+import com.nu.art.core.exceptions.runtime.BadImplementationException;
+
+import java.util.LinkedHashSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves and caches the generated {@link ModuleBinding} of each type, the lookup for a type happens only once whether a binding exists or not.
+ */
+@SuppressWarnings("rawtypes")
+final class ModuleBindings {
+
+	private static final ModuleBinding NoBinding = new ModuleBinding() {
+		@Override
+		public Class<?>[] getInjectedTypes() {
+			return null;
+		}
+
+		@Override
+		public void inject(Object instance, Object[] modules) {}
+
+		@Override
+		public Class<?>[] getListenerTypes() {
+			return null;
+		}
+
+		@Override
+		public boolean bindDefaultInterface(Object instance) {
+			return false;
+		}
+	};
+
+	private static final ConcurrentHashMap<Class<?>, ModuleBinding> bindings = new ConcurrentHashMap<>();
+
+	private ModuleBindings() {}
+
+	/**
+	 * @return The generated binding of the given type, or null if the type was not processed at compile time.
+	 */
+	@SuppressWarnings("unchecked")
+	static <Type> ModuleBinding<Type> getBinding(Class<?> type) {
+		ModuleBinding binding = bindings.get(type);
+		if (binding == null) {
+			binding = loadBinding(type);
+			bindings.put(type, binding);
+		}
+
+		return binding == NoBinding ? null : binding;
+	}
+
+	static Class<?>[] getListenerTypes(Class<?> type) {
+		ModuleBinding binding = getBinding(type);
+		return binding == null ? null : binding.getListenerTypes();
+	}
+
+	/**
+	 * @return All the types the given type is assignable to, excluding Object.
+	 */
+	static Class<?>[] getAssignableTypes(Class<?> type) {
+		Class<?>[] assignableTypes = getListenerTypes(type);
+		if (assignableTypes != null)
+			return assignableTypes;
+
+		LinkedHashSet<Class<?>> types = new LinkedHashSet<>();
+		collectAssignableTypes(type, types);
+		return types.toArray(new Class[types.size()]);
+	}
+
+	private static void collectAssignableTypes(Class<?> type, LinkedHashSet<Class<?>> types) {
+		if (type == null || type == Object.class || !types.add(type))
+			return;
+
+		collectAssignableTypes(type.getSuperclass(), types);
+		for (Class<?> _interface : type.getInterfaces()) {
+			collectAssignableTypes(_interface, types);
+		}
+	}
+
+	/**
+	 * Escapes the binary name of a type, relative to its package, into the simple name of its binding: '_' becomes "__" and '$' becomes "_0", so two
+	 * distinct types, like A_B and A$B, can never share a binding name.
+	 * <br>
+	 * MUST match the escaping of the module-manager-processor.
+	 */
+	static String escapeBindingName(String relativeBinaryName) {
+		StringBuilder escaped = new StringBuilder(relativeBinaryName.length() + 8);
+		for (int i = 0; i < relativeBinaryName.length(); i++) {
+			char c = relativeBinaryName.charAt(i);
+			if (c == '_')
+				escaped.append("__");
+			else if (c == '$')
+				escaped.append("_0");
+			else
+				escaped.append(c);
+		}
+		return escaped.toString();
+	}
+
+	private static ModuleBinding loadBinding(Class<?> type) {
+		if (type.isAnonymousClass() || type.isLocalClass())
+			return NoBinding;
+
+		String bindingClassName = type.getName();
+		Package _package = type.getPackage();
+		if (_package != null) {
+			String packageName = _package.getName();
+			bindingClassName = packageName + "." + escapeBindingName(bindingClassName.substring(packageName.length() + 1));
+		} else
+			bindingClassName = escapeBindingName(bindingClassName);
+
+		try {
+			Class<?> bindingType = Class.forName(bindingClassName + ModuleBinding.BindingSuffix, true, type.getClassLoader());
+			return (ModuleBinding) bindingType.getDeclaredConstructor().newInstance();
+		} catch (ClassNotFoundException e) {
+			return NoBinding;
+		} catch (Exception e) {
+			throw new BadImplementationException("Error instantiating generated binding: " + bindingClassName + ModuleBinding.BindingSuffix, e);
+		}
+	}
+}
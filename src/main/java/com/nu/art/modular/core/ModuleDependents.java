@@ -0,0 +1,74 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nu.art.modular.core;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * The live module items of a single type which were injected with modules, so replacing a module only re-injects the items holding it.
+ * <br>
+ * Items are removed when they are released. They are held weakly so an item which is never released does not leak, and collected items are removed
+ * as their references are enqueued.
+ */
+final class ModuleDependents {
+
+	private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+	private final HashSet<Reference<Object>> holders = new HashSet<>();
+
+	/**
+	 * @return The reference tracking the holder, to {@link #remove(Reference)} it with.
+	 */
+	final synchronized Reference<Object> add(Object holder) {
+		expungeCollected();
+		WeakReference<Object> reference = new WeakReference<>(holder, collected);
+		holders.add(reference);
+		return reference;
+	}
+
+	final synchronized void remove(Reference<Object> reference) {
+		holders.remove(reference);
+		expungeCollected();
+	}
+
+	/**
+	 * @return The instances which are still alive.
+	 */
+	final synchronized ArrayList<Object> getHolders() {
+		ArrayList<Object> liveHolders = new ArrayList<>(holders.size());
+		for (Reference<Object> reference : holders) {
+			Object holder = reference.get();
+			if (holder != null)
+				liveHolders.add(holder);
+		}
+		return liveHolders;
+	}
+
+	private void expungeCollected() {
+		for (Reference<?> reference; (reference = collected.poll()) != null; ) {
+			holders.remove(reference);
+		}
+	}
+}
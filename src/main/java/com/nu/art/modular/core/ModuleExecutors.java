@@ -0,0 +1,77 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nu.art.modular.core;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The default executors used by the module manager when none were provided.
+ */
+public final class ModuleExecutors {
+
+	static final class DaemonThreadFactory
+		implements ThreadFactory {
+
+		private final AtomicInteger counter = new AtomicInteger();
+
+		private final String prefix;
+
+		DaemonThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+	private ModuleExecutors() {}
+
+	static ExecutorService newEventExecutor() {
+		return newTaskExecutor("module-events");
+	}
+
+	/**
+	 * @param name The name prefix of the pool threads, when virtual threads are not supported.
+	 *
+	 * @return A virtual thread per task executor when the runtime supports it, otherwise a cached pool of daemon threads.
+	 */
+	public static ExecutorService newTaskExecutor(String name) {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (Exception e) {
+			return Executors.newCachedThreadPool(new DaemonThreadFactory(name));
+		}
+	}
+
+	public static ScheduledExecutorService newScheduler(String name) {
+		return Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory(name));
+	}
+}
@@ -0,0 +1,253 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nu.art.modular.core;
+
+import com.nu.art.core.exceptions.runtime.BadImplementationException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * The dependency graph of the modules, derived from the modules injected into each module.
+ * <br>
+ * Runs a task over all the modules such that a module is only processed after the modules it depends on, or in reverse, after the modules depending
+ * on it, independent modules are processed in parallel.
+ */
+final class ModuleGraph {
+
+	interface ModuleTask {
+
+		void execute(Module module);
+	}
+
+	private final Module[] modules;
+
+	/**
+	 * The indices of the modules each module depends on.
+	 */
+	private final int[][] dependencies;
+
+	/**
+	 * The indices of the modules depending on each module.
+	 */
+	private final int[][] dependents;
+
+	ModuleGraph(Module[] modules, ModuleManager manager) {
+		this.modules = modules;
+		this.dependencies = new int[modules.length][];
+		this.dependents = new int[modules.length][];
+
+		IdentityHashMap<Module, Integer> indices = new IdentityHashMap<>();
+		for (int i = 0; i < modules.length; i++) {
+			indices.put(modules[i], i);
+		}
+
+		ArrayList<ArrayList<Integer>> dependentsLists = new ArrayList<>();
+		for (int i = 0; i < modules.length; i++) {
+			dependentsLists.add(new ArrayList<Integer>());
+		}
+
+		for (int i = 0; i < modules.length; i++) {
+			ArrayList<Integer> moduleDependencies = new ArrayList<>();
+			for (Module dependency : manager.getModuleDependencies(modules[i])) {
+				Integer index = indices.get(dependency);
+				if (index == null || index == i || moduleDependencies.contains(index))
+					continue;
+
+				moduleDependencies.add(index);
+				dependentsLists.get(index).add(i);
+			}
+
+			dependencies[i] = toArray(moduleDependencies);
+		}
+
+		for (int i = 0; i < modules.length; i++) {
+			dependents[i] = toArray(dependentsLists.get(i));
+		}
+	}
+
+	/**
+	 * @return The modules forming a dependency cycle, in dependency order, or null if the graph is acyclic.
+	 */
+	final Module[] findCycle() {
+		// 0 - not visited, 1 - in the current path, 2 - done
+		int[] states = new int[modules.length];
+		ArrayList<Integer> path = new ArrayList<>();
+		for (int i = 0; i < modules.length; i++) {
+			int[] cycle = findCycle(i, states, path);
+			if (cycle == null)
+				continue;
+
+			Module[] cycleModules = new Module[cycle.length];
+			for (int j = 0; j < cycle.length; j++) {
+				cycleModules[j] = modules[cycle[j]];
+			}
+			return cycleModules;
+		}
+
+		return null;
+	}
+
+	private int[] findCycle(int index, int[] states, ArrayList<Integer> path) {
+		if (states[index] == 2)
+			return null;
+
+		if (states[index] == 1) {
+			ArrayList<Integer> cycle = new ArrayList<>(path.subList(path.indexOf(index), path.size()));
+			cycle.add(index);
+			return toArray(cycle);
+		}
+
+		states[index] = 1;
+		path.add(index);
+		for (int dependency : dependencies[index]) {
+			int[] cycle = findCycle(dependency, states, path);
+			if (cycle != null)
+				return cycle;
+		}
+
+		path.remove(path.size() - 1);
+		states[index] = 2;
+		return null;
+	}
+
+	final void verifyAcyclic() {
+		Module[] cycle = findCycle();
+		if (cycle == null)
+			return;
+
+		StringBuilder cycleDescription = new StringBuilder();
+		for (Module module : cycle) {
+			cycleDescription.append(cycleDescription.length() == 0 ? "" : " -> ").append(module.getClass().getSimpleName());
+		}
+
+		throw new BadImplementationException("Circular module dependency: " + cycleDescription);
+	}
+
+	/**
+	 * Runs the task over all the modules, a module is processed only once all its dependencies were processed.
+	 * <br>
+	 * Sequential modules are processed one by one on the calling thread, once all the modules in progress have completed, the rest are processed on the
+	 * executor.
+	 */
+	final void execute(ExecutorService executor, final ModuleTask task) {
+		execute(executor, task, dependencies, dependents);
+	}
+
+	/**
+	 * Runs the task over all the modules, a module is processed only once all the modules depending on it were processed.
+	 */
+	final void executeReversed(ExecutorService executor, final ModuleTask task) {
+		execute(executor, task, dependents, dependencies);
+	}
+
+	/**
+	 * @param dependencies The indices of the modules which must be processed before each module.
+	 * @param dependents   The indices of the modules waiting for each module to be processed.
+	 */
+	private void execute(ExecutorService executor, final ModuleTask task, int[][] dependencies, int[][] dependents) {
+		int[] pendingDependencies = new int[modules.length];
+		ArrayDeque<Integer> ready = new ArrayDeque<>();
+		for (int i = 0; i < modules.length; i++) {
+			pendingDependencies[i] = dependencies[i].length;
+			if (pendingDependencies[i] == 0)
+				ready.add(i);
+		}
+
+		ExecutorCompletionService<Integer> completionService = new ExecutorCompletionService<>(executor);
+		ArrayDeque<Integer> readySequential = new ArrayDeque<>();
+		int inProgress = 0;
+		int completed = 0;
+		while (completed < modules.length) {
+			// no module is submitted while a sequential module is waiting for the in progress modules to complete
+			if (readySequential.isEmpty())
+				while (!ready.isEmpty()) {
+					final int index = ready.poll();
+					final Module module = modules[index];
+					if (module.isSequentialInit()) {
+						readySequential.add(index);
+						continue;
+					}
+
+					completionService.submit(new Callable<Integer>() {
+						@Override
+						public Integer call() {
+							task.execute(module);
+							return index;
+						}
+					});
+					inProgress++;
+				}
+
+			if (!readySequential.isEmpty() && inProgress == 0) {
+				int index = readySequential.poll();
+				task.execute(modules[index]);
+				completed++;
+				release(dependents[index], pendingDependencies, ready);
+				continue;
+			}
+
+			if (inProgress == 0)
+				throw new BadImplementationException("Cannot resolve the modules dependency order, is there a circular dependency?");
+
+			int index;
+			try {
+				index = completionService.take().get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new BadImplementationException("Interrupted while processing modules", e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+
+				if (cause instanceof Error)
+					throw (Error) cause;
+
+				throw new BadImplementationException("Error while processing modules", cause);
+			}
+
+			inProgress--;
+			completed++;
+			release(dependents[index], pendingDependencies, ready);
+		}
+	}
+
+	private void release(int[] dependents, int[] pendingDependencies, ArrayDeque<Integer> ready) {
+		for (int dependent : dependents) {
+			if (--pendingDependencies[dependent] == 0)
+				ready.add(dependent);
+		}
+	}
+
+	private static int[] toArray(ArrayList<Integer> list) {
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+}
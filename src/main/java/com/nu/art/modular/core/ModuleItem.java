@@ -22,8 +22,12 @@ package com.nu.art.modular.core;
 
 import com.nu.art.belog.Logger;
 import com.nu.art.core.generics.Processor;
+import com.nu.art.modular.interfaces.ConsumableProcessor;
 import com.nu.art.modular.interfaces.ModuleManagerDelegator;
 
+import java.lang.ref.Reference;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 /**
  * Created by TacB0sS on 08-Oct 2016.
  */
@@ -32,16 +36,46 @@ public abstract class ModuleItem
 	extends Logger
 	implements ModuleManagerDelegator {
 
+	private static final AtomicIntegerFieldUpdater<ModuleItem> ActiveUpdater = AtomicIntegerFieldUpdater.newUpdater(ModuleItem.class, "active");
+
 	private ModuleManager moduleManager;
 
+	/**
+	 * 1 while the item is in use, so only one of concurrent releases disposes the item.
+	 */
+	private volatile int active;
+
+	private Reference<Object> trackingReference;
+
 	protected abstract void init();
 
 	protected void prepare() {}
 
+	/**
+	 * Called when a released item is returned to its type's pool, reset the item's state here so it can be reused by the next created item.
+	 * <br>
+	 * Not called for items dropped since the pool was full, or for items whose type is not pooled.
+	 */
+	protected void onRecycled() {}
+
 	public final <ListenerType> void dispatchModuleEvent(String message, Class<ListenerType> listenerType, final Processor<ListenerType> processor) {
 		moduleManager.dispatchModuleEvent(this, message, listenerType, processor);
 	}
 
+	public final <ListenerType> ListenerType dispatchConsumableModuleEvent(String message, Class<ListenerType> listenerType,
+	                                                                     final ConsumableProcessor<ListenerType> processor) {
+		return moduleManager.dispatchConsumableModuleEvent(this, message, listenerType, processor);
+	}
+
+	public final <ListenerType> EventDispatchHandle dispatchModuleEventAsync(String message, Class<ListenerType> listenerType, final Processor<ListenerType> processor) {
+		return moduleManager.dispatchModuleEventAsync(this, message, listenerType, processor);
+	}
+
+	public final <ListenerType> void dispatchModuleEventBatched(String message, Object coalescingKey, Class<ListenerType> listenerType,
+	                                                            final Processor<ListenerType> processor) {
+		moduleManager.dispatchModuleEventBatched(this, message, coalescingKey, listenerType, processor);
+	}
+
 	@Override
 	public <ModuleType extends Module> ModuleType getModule(Class<ModuleType> moduleType) {
 		return moduleManager.getModule(moduleType);
@@ -56,7 +90,22 @@ public abstract class ModuleItem
 		moduleManager.prepareModuleItem(this);
 	}
 
+	final void setActive() {
+		active = 1;
+	}
+
+	final void setTrackingReference(Reference<Object> trackingReference) {
+		this.trackingReference = trackingReference;
+	}
+
+	final Reference<Object> getTrackingReference() {
+		return trackingReference;
+	}
+
 	protected final void release() {
+		if (!ActiveUpdater.compareAndSet(this, 1, 0))
+			return;
+
 		moduleManager.disposeModuleItem(this);
 	}
 }
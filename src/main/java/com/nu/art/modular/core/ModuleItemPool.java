@@ -0,0 +1,145 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nu.art.modular.core;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of released {@link ModuleItem}s of a single type.
+ * <br>
+ * A pooled item was already instantiated and injected, so reusing it only requires registering it back as a listener and re-initializing it.
+ */
+public final class ModuleItemPool<Type extends ModuleItem> {
+
+	private final Class<Type> itemType;
+
+	private final int maxSize;
+
+	private final ArrayDeque<Type> items = new ArrayDeque<>();
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong recycled = new AtomicLong();
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * Pool slots reserved for released items being reset, guarded by the items lock.
+	 */
+	private int reserved;
+
+	ModuleItemPool(Class<Type> itemType, int maxSize) {
+		this.itemType = itemType;
+		this.maxSize = maxSize;
+	}
+
+	final Type acquire() {
+		Type item;
+		synchronized (items) {
+			item = items.poll();
+		}
+
+		(item == null ? misses : hits).incrementAndGet();
+		return item;
+	}
+
+	/**
+	 * Resets the item with {@link ModuleItem#onRecycled()} and returns it to the pool, unless the pool is full.
+	 *
+	 * @return Whether the item was pooled, false if the pool is full.
+	 */
+	final boolean recycle(Type item) {
+		synchronized (items) {
+			if (items.size() + reserved >= maxSize) {
+				dropped.incrementAndGet();
+				return false;
+			}
+
+			reserved++;
+		}
+
+		boolean reset = false;
+		try {
+			item.onRecycled();
+			reset = true;
+		} finally {
+			synchronized (items) {
+				reserved--;
+				if (reset)
+					items.push(item);
+			}
+
+			(reset ? recycled : dropped).incrementAndGet();
+		}
+
+		return true;
+	}
+
+	public final Class<Type> getItemType() {
+		return itemType;
+	}
+
+	public final int getMaxSize() {
+		return maxSize;
+	}
+
+	public final int getSize() {
+		synchronized (items) {
+			return items.size();
+		}
+	}
+
+	/**
+	 * @return The number of items created by reusing a pooled item.
+	 */
+	public final long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return The number of items that had to be instantiated since the pool was empty.
+	 */
+	public final long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return The number of released items returned to the pool.
+	 */
+	public final long getRecycled() {
+		return recycled.get();
+	}
+
+	/**
+	 * @return The number of released items discarded since the pool was full.
+	 */
+	public final long getDropped() {
+		return dropped.get();
+	}
+
+	@Override
+	public String toString() {
+		return itemType.getSimpleName() + " pool(" + getSize() + "/" + maxSize + ") hits: " + getHits() + ", misses: " + getMisses() + ", recycled: " + getRecycled() + ", dropped: " + getDropped();
+	}
+}
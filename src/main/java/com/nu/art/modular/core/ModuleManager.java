@@ -28,15 +28,36 @@ import com.nu.art.core.generics.Processor;
 import com.nu.art.core.interfaces.Condition;
 import com.nu.art.core.interfaces.ILogger;
 import com.nu.art.core.tools.ArrayTools;
+import com.nu.art.modular.core.StartupCache.ModuleMetadata;
+import com.nu.art.modular.exceptions.ModuleNotSupportedException;
+import com.nu.art.modular.interfaces.ConsumableProcessor;
 import com.nu.art.modular.interfaces.ModuleManagerDelegator;
+import com.nu.art.modular.metrics.DispatchMetrics;
+import com.nu.art.modular.metrics.StartupProfiler;
+import com.nu.art.modular.metrics.StartupProfiler.Phase;
 import com.nu.art.reflection.injector.Injector;
 import com.nu.art.reflection.tools.ART_Tools;
 import com.nu.art.reflection.tools.ReflectiveTools;
 
+import java.lang.ref.Reference;
+import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author TacB0sS
@@ -46,7 +67,15 @@ public class ModuleManager
 	extends Logger
 	implements ModuleManagerDelegator {
 
-	private boolean intialized;
+	private volatile boolean intialized;
+
+	private boolean disposed;
+
+	private boolean parallelInit;
+
+	private StartupProfiler startupProfiler;
+
+	private DeferredDiagnostics deferredDiagnostics;
 
 	public interface ModuleInitializedListener {
 
@@ -61,8 +90,105 @@ public class ModuleManager
 	public final class ModuleInjector
 		extends Injector<Module, Object> {
 
+		/**
+		 * Type to its injection plan, computed on the first injection of each type.
+		 */
+		private final ConcurrentHashMap<Class<?>, InjectionPlan> injectionPlans = new ConcurrentHashMap<>();
+
 		private ModuleInjector() {}
 
+		/**
+		 * Injects the modules to the instance's module fields, by replaying the cached injection plan of the instance type.
+		 * <br>
+		 * Only modules and live module items are re-injected when one of their modules is replaced, see {@link #replaceModule(Class, Module)}.
+		 */
+		public final void inject(Object instance) {
+			InjectionPlan plan = getInjectionPlan(instance.getClass());
+
+			// a module replaced while injecting may have missed this instance, inject again to pick the replacing module
+			int replacements;
+			do {
+				replacements = replacedModulesCount;
+				inject(instance, plan);
+			} while (replacements != replacedModulesCount);
+		}
+
+		private void inject(Object instance, InjectionPlan plan) {
+			Class<? extends Module>[] injectedTypes = plan.injectedTypes;
+			Object[] modules = new Object[injectedTypes.length];
+			for (int i = 0; i < injectedTypes.length; i++) {
+				modules[i] = getModuleForType(instance, injectedTypes[i]);
+			}
+
+			plan.inject(instance, modules);
+		}
+
+		/**
+		 * Injects the instance again, with the currently registered modules.
+		 */
+		final void reinject(Object instance) {
+			inject(instance, getInjectionPlan(instance.getClass()));
+		}
+
+		/**
+		 * @return The module types injected into instances of the given type.
+		 */
+		final Class<? extends Module>[] getInjectedTypes(Class<?> injecteeType) {
+			return getInjectionPlan(injecteeType).injectedTypes;
+		}
+
+		/**
+		 * @return The injection plan of the type, using the generated binding of the type when available, otherwise the type's module fields.
+		 */
+		final InjectionPlan getInjectionPlan(Class<?> injecteeType) {
+			InjectionPlan plan = injectionPlans.get(injecteeType);
+			if (plan != null)
+				return plan;
+
+			ModuleBinding<Object> binding = ModuleBindings.getBinding(injecteeType);
+			if (binding != null)
+				plan = new InjectionPlan(binding);
+			else
+				plan = new InjectionPlan(extractFieldsFromInstance(injecteeType));
+
+			// types resolved concurrently all replay the first published plan
+			InjectionPlan existingPlan = injectionPlans.putIfAbsent(injecteeType, plan);
+			return existingPlan != null ? existingPlan : plan;
+		}
+
+		/**
+		 * Adds injection plans from the module fields resolved by an earlier boot, types with a generated binding keep using their binding.
+		 */
+		final void addInjectedFields(LinkedHashMap<Class<?>, Field[]> injectedFields) {
+			for (Entry<Class<?>, Field[]> entry : injectedFields.entrySet()) {
+				if (ModuleBindings.getBinding(entry.getKey()) != null)
+					continue;
+
+				injectionPlans.putIfAbsent(entry.getKey(), new InjectionPlan(entry.getValue()));
+			}
+		}
+
+		/**
+		 * @return The module fields of every type injected so far, excluding types injected via their generated binding.
+		 */
+		final LinkedHashMap<Class<?>, Field[]> getInjectedFields() {
+			LinkedHashMap<Class<?>, Field[]> injectedFields = new LinkedHashMap<>();
+			for (Entry<Class<?>, InjectionPlan> entry : injectionPlans.entrySet()) {
+				Field[] fields = entry.getValue().getFields();
+				if (fields != null)
+					injectedFields.put(entry.getKey(), fields);
+			}
+			return injectedFields;
+		}
+
+		private Module getModuleForType(Object instance, Class<? extends Module> moduleType) {
+			Module module = getModule(moduleType, false);
+			if (module == null)
+				throw new ImplementationMissingException("Cannot inject module to instance of: " + instance.getClass() + "\n  MUST add the module of type: '" + moduleType + "' to one of your ModulePacks");
+
+			return module;
+		}
+
 		@Override
 		@SuppressWarnings("unchecked")
 		protected Object getValueForField(Object instance, Field field) {
@@ -81,7 +207,8 @@ public class ModuleManager
 			return ART_Tools.getAllFieldsInHierarchy(injecteeType, new Condition<Field>() {
 				@Override
 				public boolean checkCondition(Field field) {
-					return Module.class.isAssignableFrom(field.getType()) && !Modifier.isStatic(field.getModifiers());
+					// the base Module type is never injected
+					return Module.class.isAssignableFrom(field.getType()) && field.getType() != Module.class && !Modifier.isStatic(field.getModifiers());
 				}
 			});
 		}
@@ -94,41 +221,170 @@ public class ModuleManager
 
 	/**
 	 * Holds a references to all the module types which have registered to this main module,
+	 * <br>
+	 * The map is never modified once published, a registration replaces it with an updated copy (under the registry lock), so lookups are lock-free
+	 * and safe from any thread.
+	 */
+	private volatile HashMap<Class<? extends Module>, Module> registeredModules = new HashMap<>();
+
+	private final Object registryLock = new Object();
+
+	/**
+	 * Serializes the module replacements.
+	 */
+	private final Object replacementLock = new Object();
+
+	/**
+	 * Incremented once a replacing module is published, so an injection racing with the replacement can tell it might have missed it.
 	 */
-	private HashMap<Class<? extends Module>, Module> registeredModules = new HashMap<>();
+	private volatile int replacedModulesCount;
+
+	/**
+	 * The creation of a lazy module, which other threads requesting the module wait for, without holding the lazy modules lock.
+	 */
+	private static final class LazyModuleCreation {
+
+		private final Thread creator = Thread.currentThread();
+
+		private final CountDownLatch completed = new CountDownLatch(1);
+
+		/**
+		 * The module being created, exposed to the creating thread and to the creators it waits for, so modules injected with it while it is created
+		 * can reference it, as eager modules injected with each other do.
+		 */
+		private Module module;
+
+		private volatile Throwable error;
+
+		private Module await(Class<? extends Module> moduleType) {
+			boolean interrupted = false;
+			try {
+				while (true) {
+					try {
+						completed.await();
+						break;
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			} finally {
+				if (interrupted)
+					Thread.currentThread().interrupt();
+			}
+
+			if (error != null)
+				throw new BadImplementationException("Error creating lazy module: " + moduleType.getName(), error);
+
+			return module;
+		}
+	}
+
+	/**
+	 * Module types registered in lazy mode which were not instantiated yet.
+	 */
+	private final HashMap<Class<? extends Module>, Class<? extends Module>> lazyModuleTypes = new HashMap<>();
+
+	/**
+	 * Lazy module type to its creation in progress, guarded by the {@link #lazyModuleTypes} lock.
+	 */
+	private final HashMap<Class<? extends Module>, LazyModuleCreation> lazyModuleCreations = new HashMap<>();
+
+	/**
+	 * Thread to the lazy module creation it waits for, guarded by the {@link #lazyModuleTypes} lock, so lazy modules injected with each other and
+	 * requested from different threads do not wait for each other forever.
+	 */
+	private final HashMap<Thread, LazyModuleCreation> awaitedLazyModuleCreations = new HashMap<>();
+
+	/**
+	 * Whether {@link #lazyModuleTypes} is not empty, lets module lookups skip the lazy modules lock once all the lazy modules were created.
+	 */
+	private volatile boolean hasLazyModules;
+
+	/**
+	 * Module type to its metadata resolved by an earlier boot, see {@link StartupCache}.
+	 */
+	private HashMap<Class<? extends Module>, ModuleMetadata> cachedModules;
 
 	private EventDispatcher eventDispatcher;
 
-	private Module[] orderedModules = {};
+	private Executor eventExecutor;
+
+	/**
+	 * The event executor created by the manager when none was provided, shut down when the manager is disposed.
+	 */
+	private ExecutorService defaultEventExecutor;
+
+	private BatchedEventQueue eventQueue;
+
+	private final ConcurrentHashMap<Class<? extends ModuleItem>, ModuleItemPool<?>> moduleItemPools = new ConcurrentHashMap<>();
 
-	public static ModuleManager ModuleManager;
+	/**
+	 * Module item type to its live items, only for types with module fields, see {@link #replaceModule(Class, Module)}.
+	 */
+	private final ConcurrentHashMap<Class<? extends ModuleItem>, ModuleDependents> liveModuleItems = new ConcurrentHashMap<>();
+
+	private volatile Module[] orderedModules = {};
+
+	/**
+	 * Type to the typed array of the modules assignable to that type, updated as modules are registered.
+	 */
+	private final ConcurrentHashMap<Class<?>, Object[]> assignableModules = new ConcurrentHashMap<>();
 
 	public ModuleManager() {
 		this(GenericParamExtractor._GenericParamExtractor);
 	}
 
 	protected ModuleManager(GenericParamExtractor paramExtractor) {
-		if (ModuleManager != null)
-			throw new BadImplementationException("THERE CAN ONLY BE ONE MODULE MANAGER IN A JVM!!");
-
 		eventDispatcher = new EventDispatcher("ModulesEventDispatcher", paramExtractor);
-		ModuleManager = this;
 	}
 
 	public final ModuleInjector getInjector() {
 		return moduleInjector;
 	}
 
+	/**
+	 * @return The modules assignable to the given type, in registration order.
+	 * <br>
+	 * The returned array is cached and shared between callers, it MUST NOT be modified.
+	 */
 	@SuppressWarnings("unchecked")
 	public final <Type> Type[] getModulesAssignableFrom(Class<Type> classType) {
-		ArrayList<Type> modules = new ArrayList<>();
-		for (Module orderedModule : orderedModules) {
-			if (!classType.isAssignableFrom(orderedModule.getClass()))
-				continue;
+		createLazyModulesAssignableFrom(classType);
+
+		Object[] modules = assignableModules.get(classType);
+		if (modules != null)
+			return (Type[]) modules;
 
-			modules.add((Type) orderedModule);
+		synchronized (assignableModules) {
+			modules = assignableModules.get(classType);
+			if (modules == null) {
+				modules = (Object[]) Array.newInstance(classType, 0);
+				assignableModules.put(classType, modules);
+			}
+		}
+
+		return (Type[]) modules;
+	}
+
+	/**
+	 * Adds the module to the cached arrays of all the types it is assignable to.
+	 */
+	private void indexModule(Module module) {
+		for (Class<?> assignableType : ModuleBindings.getAssignableTypes(module.getClass())) {
+			indexModule(module, assignableType);
+		}
+	}
+
+	private void indexModule(Module module, Class<?> assignableType) {
+		synchronized (assignableModules) {
+			Object[] modules = assignableModules.get(assignableType);
+			Object[] newModules = (Object[]) Array.newInstance(assignableType, modules == null ? 1 : modules.length + 1);
+			if (modules != null)
+				System.arraycopy(modules, 0, newModules, 0, modules.length);
+
+			newModules[newModules.length - 1] = module;
+			assignableModules.put(assignableType, newModules);
 		}
-		return ArrayTools.asArray(modules, classType);
 	}
 
 	@Override
@@ -148,9 +404,140 @@ public class ModuleManager
 		this.moduleCreatedListener = moduleCreatedListener;
 	}
 
+	/**
+	 * @param parallelInit Whether to initialize independent modules in parallel, a module is always initialized after the modules injected into it.
+	 */
+	public final void setParallelInit(boolean parallelInit) {
+		this.parallelInit = parallelInit;
+	}
+
+	/**
+	 * @param startupProfiler The profiler to record the startup phases of the modules to, or null to disable the profiling.
+	 */
+	public final void setStartupProfiler(StartupProfiler startupProfiler) {
+		this.startupProfiler = startupProfiler;
+	}
+
+	public final StartupProfiler getStartupProfiler() {
+		return startupProfiler;
+	}
+
+	/**
+	 * @param deferredDiagnostics Whether to buffer the startup diagnostics and write them on a background thread once the manager is ready, in this mode
+	 *                            only the details of modules whose {@link Module#DebugFlag} is enabled are printed.
+	 */
+	public final synchronized void setDeferredDiagnostics(boolean deferredDiagnostics) {
+		if (!deferredDiagnostics)
+			this.deferredDiagnostics = null;
+		else if (this.deferredDiagnostics == null)
+			this.deferredDiagnostics = new DeferredDiagnostics();
+	}
+
+	final boolean isDeferredDiagnostics() {
+		return deferredDiagnostics != null;
+	}
+
+	/**
+	 * Writes the diagnostic immediately, or on the background writer once the manager is ready when deferred diagnostics are enabled.
+	 */
+	final void writeDiagnostic(Runnable diagnostic) {
+		DeferredDiagnostics deferredDiagnostics = this.deferredDiagnostics;
+		if (deferredDiagnostics == null)
+			diagnostic.run();
+		else
+			deferredDiagnostics.defer(diagnostic);
+	}
+
+	/**
+	 * @return Whether all the deferred diagnostics were written within the timeout.
+	 */
+	public final boolean awaitDiagnostics(long timeoutMs)
+		throws InterruptedException {
+		DeferredDiagnostics deferredDiagnostics = this.deferredDiagnostics;
+		return deferredDiagnostics == null || deferredDiagnostics.await(timeoutMs);
+	}
+
+	final void profile(Phase phase, Object subject, long startNanos) {
+		StartupProfiler startupProfiler = this.startupProfiler;
+		if (startupProfiler == null)
+			return;
+
+		String name = subject == null ? null : (subject instanceof Class ? (Class<?>) subject : subject.getClass()).getName();
+		startupProfiler.record(phase, name, startNanos, System.nanoTime());
+	}
+
+	/**
+	 * @param eventExecutor The executor to deliver asynchronous module events on, by default virtual threads are used where supported, otherwise a
+	 *                      cached pool of daemon threads.
+	 */
+	public final void setEventExecutor(Executor eventExecutor) {
+		this.eventExecutor = eventExecutor;
+	}
+
+	/**
+	 * Configures the batching of the events dispatched via {@link #dispatchModuleEventBatched(ILogger, String, Object, Class, Processor)}.
+	 *
+	 * @param listenerType  The listener type to configure.
+	 * @param flushWindowMs The time to accumulate events before delivering them.
+	 * @param maxBatchSize  The number of pending events which triggers an immediate delivery.
+	 */
+	public final void configureEventBatching(Class<?> listenerType, long flushWindowMs, int maxBatchSize) {
+		getEventQueue().configure(listenerType, flushWindowMs, maxBatchSize);
+	}
+
+	/**
+	 * Starts recording the module events dispatch counts, fan-out and per listener type handling latency.
+	 * <br>
+	 * The recording uses striped counters and lock free histograms, and is cheap enough to remain enabled in production.
+	 *
+	 * @return The metrics the module events are recorded to.
+	 */
+	public final synchronized DispatchMetrics enableDispatchMetrics() {
+		DispatchMetrics metrics = eventDispatcher.getMetrics();
+		if (metrics == null)
+			eventDispatcher.setMetrics(metrics = new DispatchMetrics());
+
+		return metrics;
+	}
+
+	public final void disableDispatchMetrics() {
+		eventDispatcher.setMetrics(null);
+	}
+
+	/**
+	 * @return The recorded module events metrics, or null if the recording is not enabled.
+	 */
+	public final DispatchMetrics getDispatchMetrics() {
+		return eventDispatcher.getMetrics();
+	}
+
+	/**
+	 * Delivers all the pending batched events on the calling thread.
+	 */
+	public final void flushModuleEvents() {
+		getEventQueue().flush();
+	}
+
+	private synchronized BatchedEventQueue getEventQueue() {
+		if (eventQueue == null)
+			eventQueue = new BatchedEventQueue(eventDispatcher, ModuleExecutors.newScheduler("module-events-batcher"));
+
+		return eventQueue;
+	}
+
+	private synchronized Executor getEventExecutor() {
+		if (eventExecutor == null)
+			eventExecutor = defaultEventExecutor = ModuleExecutors.newEventExecutor();
+
+		return eventExecutor;
+	}
+
 	@SuppressWarnings("unchecked")
 	private <ModuleType extends Module> ModuleType getModule(Class<ModuleType> moduleType, boolean throwException) {
 		ModuleType module = (ModuleType) registeredModules.get(moduleType);
+		if (module == null)
+			module = createLazyModule(moduleType);
+
 		if (module == null && throwException) {
 			throw new ImplementationMissingException("MUST add module of type: '" + moduleType.getName() + "' to one of your module packs");
 		}
@@ -162,26 +549,185 @@ public class ModuleManager
 			throw new BadImplementationException("Module manager was already initialized!");
 
 		intialized = true;
+		if (startupProfiler != null)
+			for (Module module : orderedModules) {
+				Module[] dependencies = getModuleDependencies(module);
+				String[] dependencyNames = new String[dependencies.length];
+				for (int i = 0; i < dependencies.length; i++) {
+					dependencyNames[i] = dependencies[i].getClass().getName();
+				}
+				startupProfiler.addDependencies(module.getClass().getName(), dependencyNames);
+			}
+
 		for (Module module : orderedModules) {
+			long startNanos = System.nanoTime();
 			module.assignToDefaultInterface();
+			profile(Phase.AssignInterface, module, startNanos);
 		}
 
-		for (Module module : orderedModules) {
-			module.init();
+		if (parallelInit)
+			initInParallel();
+		else
+			for (Module module : orderedModules) {
+				initModule(module);
+			}
 
-			if (moduleInitializedListener == null)
+		for (final Module module : orderedModules) {
+			if (deferredDiagnostics != null && !module.DebugFlag.isEnabled())
 				continue;
 
+			writeDiagnostic(new Runnable() {
+				@Override
+				public void run() {
+					printModuleDetails(module);
+				}
+			});
+		}
+
+		onBuildCompleted();
+
+		if (deferredDiagnostics != null)
+			deferredDiagnostics.flush();
+	}
+
+	private void printModuleDetails(Module module) {
+		long startNanos = System.nanoTime();
+		logInfo("----------- " + module.getClass().getSimpleName() + " ------------");
+		module.printDetails();
+		logInfo("-------- End of " + module.getClass().getSimpleName() + " --------");
+		profile(Phase.PrintDetails, module, startNanos);
+	}
+
+	private void initInParallel() {
+		ModuleGraph graph = new ModuleGraph(orderedModules, this);
+		graph.verifyAcyclic();
+
+		ForkJoinPool initPool = new ForkJoinPool();
+		try {
+			graph.execute(initPool, new ModuleGraph.ModuleTask() {
+				@Override
+				public void execute(Module module) {
+					initModule(module);
+				}
+			});
+		} finally {
+			initPool.shutdown();
+		}
+	}
+
+	/**
+	 * Disposes the modules in reverse dependency order, a module is disposed only once all the modules depending on it were disposed, and independent
+	 * modules are disposed in parallel. Then shuts down the event delivery and diagnostics threads of the manager.
+	 *
+	 * @param moduleTimeoutMs The time to wait for each module to dispose, a module which did not dispose in time is interrupted, and does not hold back
+	 *                        the disposal of the modules it depends on.
+	 *
+	 * @return Whether all the modules were disposed within their timeout and without errors.
+	 */
+	public final boolean dispose(final long moduleTimeoutMs) {
+		BatchedEventQueue eventQueue;
+		synchronized (this) {
+			if (disposed)
+				throw new BadImplementationException("Module manager was already disposed!");
+
+			disposed = true;
+			eventQueue = this.eventQueue;
+		}
+
+		// deliver the pending events while their listeners are still alive
+		if (eventQueue != null)
+			eventQueue.shutdown();
+
+		Module[] modules = orderedModules;
+		final ExecutorService disposeExecutor = ModuleExecutors.newTaskExecutor("module-dispose");
+		final AtomicInteger failures = new AtomicInteger();
+		ModuleGraph.ModuleTask disposeTask = new ModuleGraph.ModuleTask() {
+			@Override
+			public void execute(Module module) {
+				if (!disposeModule(disposeExecutor, module, moduleTimeoutMs))
+					failures.incrementAndGet();
+			}
+		};
+
+		try {
+			ModuleGraph graph = new ModuleGraph(modules, this);
+			if (graph.findCycle() == null)
+				graph.executeReversed(disposeExecutor, disposeTask);
+			else {
+				logWarning("Circular module dependency, disposing the modules in reverse registration order");
+				for (int i = modules.length - 1; i >= 0; i--) {
+					disposeTask.execute(modules[i]);
+				}
+			}
+		} finally {
+			disposeExecutor.shutdownNow();
+		}
+
+		for (Module module : modules) {
+			eventDispatcher.removeListener(module);
+		}
+
+		synchronized (this) {
+			if (defaultEventExecutor != null)
+				defaultEventExecutor.shutdown();
+		}
+
+		if (deferredDiagnostics != null)
+			deferredDiagnostics.shutdown();
+
+		return failures.get() == 0;
+	}
+
+	private boolean disposeModule(ExecutorService disposeExecutor, final Module module, long timeoutMs) {
+		Future<?> disposal = disposeExecutor.submit(new Runnable() {
+			@Override
+			public void run() {
+				module.dispose();
+			}
+		});
+
+		try {
+			disposal.get(timeoutMs, TimeUnit.MILLISECONDS);
+			return true;
+		} catch (TimeoutException e) {
+			disposal.cancel(true);
+			logWarning("Module " + module.getClass().getSimpleName() + " did not dispose within: " + timeoutMs + "ms");
+		} catch (ExecutionException e) {
+			logError("Error while disposing module: " + module.getClass().getSimpleName(), e.getCause());
+		} catch (InterruptedException e) {
+			disposal.cancel(true);
+			Thread.currentThread().interrupt();
+		}
+		return false;
+	}
+
+	private void initModule(Module module) {
+		long startNanos = System.nanoTime();
+		module.init();
+		profile(Phase.Init, module, startNanos);
+
+		if (moduleInitializedListener == null)
+			return;
+
+		synchronized (moduleInitializedListener) {
 			moduleInitializedListener.onModuleInitialized(module);
 		}
+	}
 
-		for (Module module : orderedModules) {
-			logInfo("----------- " + module.getClass().getSimpleName() + " ------------");
-			module.printDetails();
-			logInfo("-------- End of " + module.getClass().getSimpleName() + " --------");
+	/**
+	 * @return The registered modules injected into the given module.
+	 */
+	final Module[] getModuleDependencies(Module module) {
+		ArrayList<Module> dependencies = new ArrayList<>();
+		for (Class<? extends Module> moduleType : moduleInjector.getInjectedTypes(module.getClass())) {
+			Module dependency = registeredModules.get(moduleType);
+			if (dependency == null || dependency == module)
+				continue;
+
+			dependencies.add(dependency);
 		}
 
-		onBuildCompleted();
+		return ArrayTools.asArray(dependencies, Module.class);
 	}
 
 	/**
@@ -197,26 +743,241 @@ public class ModuleManager
 	}
 
 	public final <_Module extends Module> void registerMockModule(Class<_Module> moduleType, _Module module) {
-		registeredModules.put(moduleType, module);
+		synchronized (lazyModuleTypes) {
+			lazyModuleTypes.remove(moduleType);
+			hasLazyModules = !lazyModuleTypes.isEmpty();
+		}
+
+		synchronized (registryLock) {
+			HashMap<Class<? extends Module>, Module> registeredModules = new HashMap<>(this.registeredModules);
+			registeredModules.put(moduleType, module);
+			this.registeredModules = registeredModules;
+		}
+	}
+
+	/**
+	 * Registers the module type without instantiating it, the module is instantiated, injected and initialized the first time it is requested.
+	 */
+	final <_Module extends Module> void registerLazyModuleType(Class<_Module> moduleType) {
+		registerLazyModuleType(moduleType, null);
+	}
+
+	/**
+	 * @param keys The keys the module adds once instantiated, as resolved by an earlier boot, so the module can be requested by any of its keys.
+	 */
+	final <_Module extends Module> void registerLazyModuleType(Class<_Module> moduleType, Class<? extends Module>[] keys) {
+		if (registeredModules.get(moduleType) != null)
+			return;
+
+		synchronized (lazyModuleTypes) {
+			lazyModuleTypes.put(moduleType, moduleType);
+			hasLazyModules = true;
+			if (keys == null)
+				return;
+
+			for (Class<? extends Module> key : keys) {
+				if (!lazyModuleTypes.containsKey(key))
+					lazyModuleTypes.put(key, moduleType);
+			}
+		}
+	}
+
+	/**
+	 * Uses the metadata resolved by an earlier boot, instead of resolving it reflectively.
+	 */
+	final void setCachedMetadata(ModuleMetadata[] modules, LinkedHashMap<Class<?>, Field[]> injectedFields) {
+		HashMap<Class<? extends Module>, ModuleMetadata> cachedModules = new HashMap<>();
+		for (ModuleMetadata module : modules) {
+			cachedModules.put(module.moduleType, module);
+		}
+
+		this.cachedModules = cachedModules;
+		moduleInjector.addInjectedFields(injectedFields);
+	}
+
+	/**
+	 * @return The metadata of the given module types, as resolved by this boot.
+	 */
+	@SuppressWarnings("unchecked")
+	final ModuleMetadata[] getModulesMetadata(ArrayList<Class<? extends Module>> moduleTypes) {
+		ModuleMetadata[] modules = new ModuleMetadata[moduleTypes.size()];
+		for (int i = 0; i < modules.length; i++) {
+			Class<? extends Module> moduleType = moduleTypes.get(i);
+			Module module = registeredModules.get(moduleType);
+			if (module == null || module.getClass() != moduleType)
+				modules[i] = new ModuleMetadata(moduleType, new Class[]{moduleType}, false, null);
+			else
+				modules[i] = new ModuleMetadata(moduleType, module.keys, module.isInterfaceResolved(), module.getResolvedInterface());
+		}
+		return modules;
+	}
+
+	/**
+	 * Creates the lazy module registered for the given type, the module is validated, injected and initialized before it is published, and other
+	 * threads requesting it meanwhile wait for its creation to complete.
+	 *
+	 * @return The module, or null if no lazy module is registered for the type.
+	 */
+	@SuppressWarnings("unchecked")
+	private <ModuleType extends Module> ModuleType createLazyModule(Class<ModuleType> moduleType) {
+		Class<? extends Module> lazyModuleType;
+		LazyModuleCreation creation;
+		if (!hasLazyModules)
+			return null;
+
+		synchronized (lazyModuleTypes) {
+
+			ModuleType module = (ModuleType) registeredModules.get(moduleType);
+			if (module != null)
+				return module;
+
+			lazyModuleType = lazyModuleTypes.get(moduleType);
+			if (lazyModuleType == null)
+				return null;
+
+			creation = lazyModuleCreations.get(lazyModuleType);
+			if (creation == null)
+				lazyModuleCreations.put(lazyModuleType, creation = new LazyModuleCreation());
+			else if (creation.creator == Thread.currentThread() || awaitsCurrentThread(creation.creator)) {
+				// the module is requested within its own creation, on the same thread or by a module the creator waits for
+				if (creation.module == null)
+					throw new BadImplementationException("Lazy module " + lazyModuleType.getName() + " was requested while being instantiated");
+
+				return (ModuleType) creation.module;
+			} else
+				awaitedLazyModuleCreations.put(Thread.currentThread(), creation);
+		}
+
+		if (creation.creator != Thread.currentThread())
+			try {
+				return (ModuleType) creation.await(lazyModuleType);
+			} finally {
+				synchronized (lazyModuleTypes) {
+					awaitedLazyModuleCreations.remove(Thread.currentThread());
+				}
+			}
+
+		boolean published = false;
+		try {
+			int replacements = replacedModulesCount;
+			Module module = buildLazyModule(lazyModuleType, creation);
+			registerModuleInstance(module);
+			published = true;
+
+			// a module replaced before this module was registered did not re-inject it
+			if (replacements != replacedModulesCount)
+				moduleInjector.reinject(module);
+
+			return (ModuleType) module;
+		} catch (RuntimeException | Error e) {
+			creation.error = e;
+			throw e;
+		} finally {
+			synchronized (lazyModuleTypes) {
+				lazyModuleCreations.remove(lazyModuleType);
+				if (published) {
+					lazyModuleTypes.values().removeAll(Collections.singleton(lazyModuleType));
+					hasLazyModules = !lazyModuleTypes.isEmpty();
+				}
+			}
+			creation.completed.countDown();
+		}
+	}
+
+	/**
+	 * @return Whether the creator waits, directly or through the creators it waits for, for a lazy module created by the current thread.
+	 */
+	private boolean awaitsCurrentThread(Thread creator) {
+		for (LazyModuleCreation awaited = awaitedLazyModuleCreations.get(creator); awaited != null; awaited = awaitedLazyModuleCreations.get(awaited.creator)) {
+			if (awaited.creator == Thread.currentThread())
+				return true;
+		}
+		return false;
+	}
+
+	private Module buildLazyModule(Class<? extends Module> lazyModuleType, LazyModuleCreation creation) {
+		logDebug("Creating lazy module: " + lazyModuleType.getSimpleName());
+		long startNanos = System.nanoTime();
+		Module module = instantiateModule(lazyModuleType);
+		module.setMainManager(this);
+		creation.module = module;
+		profile(Phase.Instantiate, lazyModuleType, startNanos);
+
+		ValidationResult result = new ValidationResult();
+		module.validateModule(result);
+		if (!result.isEmpty())
+			throw new ModuleNotSupportedException("\n" + result.getErrorData());
+
+		moduleInjector.inject(module);
+		module.assignToDefaultInterface();
+
+		// modules created before the manager was initialized would be initialized with the rest of the modules
+		if (intialized)
+			initModule(module);
+
+		return module;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void createLazyModulesAssignableFrom(Class<?> classType) {
+		if (!hasLazyModules)
+			return;
+
+		ArrayList<Class<? extends Module>> moduleTypes = null;
+		synchronized (lazyModuleTypes) {
+			for (Class<? extends Module> lazyModuleType : lazyModuleTypes.values()) {
+				if (!classType.isAssignableFrom(lazyModuleType))
+					continue;
+
+				if (moduleTypes == null)
+					moduleTypes = new ArrayList<>();
+
+				if (!moduleTypes.contains(lazyModuleType))
+					moduleTypes.add(lazyModuleType);
+			}
+		}
+
+		if (moduleTypes == null)
+			return;
+
+		for (Class<? extends Module> moduleType : moduleTypes) {
+			createLazyModule(moduleType);
+		}
 	}
 
 	final <_Module extends Module> void registerModuleType(Class<_Module> moduleType) {
-		_Module module;
-		module = ReflectiveTools.newInstance(moduleType);
-		registerModuleInstance(module);
+		long startNanos = System.nanoTime();
+		registerModuleInstance(instantiateModule(moduleType));
+		profile(Phase.Instantiate, moduleType, startNanos);
+	}
+
+	private <_Module extends Module> _Module instantiateModule(Class<_Module> moduleType) {
+		_Module module = ReflectiveTools.newInstance(moduleType);
+
+		ModuleMetadata cachedModule = cachedModules == null ? null : cachedModules.get(moduleType);
+		if (cachedModule != null && cachedModule.interfaceResolved)
+			module.setResolvedInterface(cachedModule.defaultInterface);
+
+		return module;
 	}
 
 	final <_Module extends Module> void registerModuleInstance(_Module module) {
 		module.setMainManager(this);
 
-		for (Class<? extends Module> key : module.keys) {
-			Module olderModule = registeredModules.put(key, module);
-			if (olderModule != null)
-				logWarning("Shared Module key " + key + " between modules: " + olderModule.getClass() + " and " + module.getClass());
+		synchronized (registryLock) {
+			HashMap<Class<? extends Module>, Module> registeredModules = new HashMap<>(this.registeredModules);
+			for (Class<? extends Module> key : module.keys) {
+				Module olderModule = registeredModules.put(key, module);
+				if (olderModule != null)
+					logWarning("Shared Module key " + key + " between modules: " + olderModule.getClass() + " and " + module.getClass());
+			}
+
+			this.registeredModules = registeredModules;
+			this.orderedModules = ArrayTools.appendElement(this.orderedModules, module);
 		}
 
-		eventDispatcher.addListener(module);
-		this.orderedModules = ArrayTools.appendElement(this.orderedModules, module);
+		eventDispatcher.addListener(module, ModuleBindings.getListenerTypes(module.getClass()));
+		indexModule(module);
 
 		if (moduleCreatedListener == null)
 			return;
@@ -224,15 +985,251 @@ public class ModuleManager
 		moduleCreatedListener.onModuleCreated(module);
 	}
 
+	/**
+	 * Replaces the module registered under the given key with a new module instance, while the manager is running.
+	 * <br>
+	 * The new module is injected and initialized before it is published, it then takes over the keys of the replaced module which it is assignable to,
+	 * its place in the modules order, its supertypes index entries and its event listening. Only the modules and the live module items which were
+	 * injected with the replaced module are re-injected, and the replaced module is disposed last.
+	 * <br>
+	 * Calls already in progress on the replaced module are not awaited.
+	 *
+	 * @return The replaced module.
+	 */
+	@SuppressWarnings("unchecked")
+	public final <_Module extends Module> _Module replaceModule(Class<_Module> key, _Module newModule) {
+		synchronized (replacementLock) {
+			_Module oldModule = getModule(key);
+			if (oldModule == newModule)
+				return oldModule;
+
+			if (registeredModules.containsValue(newModule))
+				throw new BadImplementationException("Module " + newModule.getClass().getName() + " is already registered");
+
+			ArrayList<Class<? extends Module>> droppedKeys = new ArrayList<>();
+			for (Class<? extends Module> oldKey : oldModule.keys) {
+				if (!oldKey.isInstance(newModule))
+					droppedKeys.add(oldKey);
+			}
+
+			if (!getDependents(droppedKeys.toArray(new Class[droppedKeys.size()])).isEmpty())
+				throw new BadImplementationException(
+					"Module " + newModule.getClass().getName() + " cannot replace " + oldModule.getClass().getName() + ", it is not assignable to all the injected keys: " + droppedKeys);
+
+			logInfo("Replacing module " + oldModule.getClass().getSimpleName() + " with: " + newModule.getClass().getSimpleName());
+			newModule.setMainManager(this);
+			ValidationResult result = new ValidationResult();
+			newModule.validateModule(result);
+			if (!result.isEmpty())
+				throw new ModuleNotSupportedException("\n" + result.getErrorData());
+
+			moduleInjector.inject(newModule);
+			newModule.assignToDefaultInterface();
+			if (intialized)
+				initModule(newModule);
+
+			publishReplacement(oldModule, newModule);
+
+			for (Object dependent : getDependents(oldModule.keys)) {
+				if (dependent != oldModule)
+					moduleInjector.reinject(dependent);
+			}
+
+			// the new module starts listening before the old one stops, so events dispatched meanwhile are not lost
+			eventDispatcher.addListener(newModule, ModuleBindings.getListenerTypes(newModule.getClass()));
+			eventDispatcher.removeListener(oldModule);
+			reindexModule(oldModule, newModule);
+
+			try {
+				oldModule.dispose();
+			} catch (RuntimeException e) {
+				logError("Error while disposing replaced module: " + oldModule.getClass().getSimpleName(), e);
+			}
+
+			return oldModule;
+		}
+	}
+
+	/**
+	 * @return The registered modules and the live module items which are injected with any of the given module types.
+	 */
+	private ArrayList<Object> getDependents(Class<? extends Module>[] moduleTypes) {
+		ArrayList<Object> dependents = new ArrayList<>();
+		for (Module module : orderedModules) {
+			if (injectsAny(module.getClass(), moduleTypes))
+				dependents.add(module);
+		}
+
+		for (Entry<Class<? extends ModuleItem>, ModuleDependents> entry : liveModuleItems.entrySet()) {
+			if (injectsAny(entry.getKey(), moduleTypes))
+				dependents.addAll(entry.getValue().getHolders());
+		}
+		return dependents;
+	}
+
+	private boolean injectsAny(Class<?> injecteeType, Class<? extends Module>[] moduleTypes) {
+		for (Class<? extends Module> injectedType : moduleInjector.getInjectedTypes(injecteeType)) {
+			for (Class<? extends Module> moduleType : moduleTypes) {
+				if (injectedType == moduleType)
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Moves the keys of the old module which the new module is assignable to, and the new module's own keys, to the new module.
+	 */
+	private void publishReplacement(Module oldModule, Module newModule) {
+		synchronized (registryLock) {
+			HashMap<Class<? extends Module>, Module> registeredModules = new HashMap<>(this.registeredModules);
+			for (Class<? extends Module> oldKey : oldModule.keys) {
+				if (registeredModules.get(oldKey) != oldModule)
+					continue;
+
+				if (oldKey.isInstance(newModule))
+					registeredModules.put(oldKey, newModule);
+				else
+					registeredModules.remove(oldKey);
+			}
+
+			for (Class<? extends Module> key : newModule.keys) {
+				Module olderModule = registeredModules.put(key, newModule);
+				if (olderModule != null && olderModule != oldModule && olderModule != newModule)
+					logWarning("Shared Module key " + key + " between modules: " + olderModule.getClass() + " and " + newModule.getClass());
+			}
+
+			Module[] orderedModules = this.orderedModules.clone();
+			for (int i = 0; i < orderedModules.length; i++) {
+				if (orderedModules[i] == oldModule)
+					orderedModules[i] = newModule;
+			}
+
+			this.registeredModules = registeredModules;
+			this.orderedModules = orderedModules;
+			replacedModulesCount++;
+		}
+	}
+
+	/**
+	 * Puts the new module in the place of the old module in the cached arrays of the types it is assignable to, removes the old module from the rest,
+	 * and adds the new module to the arrays of the other types it is assignable to.
+	 */
+	private void reindexModule(Module oldModule, Module newModule) {
+		synchronized (assignableModules) {
+			for (Class<?> assignableType : ModuleBindings.getAssignableTypes(oldModule.getClass())) {
+				Object[] modules = assignableModules.get(assignableType);
+				if (modules == null)
+					continue;
+
+				boolean replace = assignableType.isInstance(newModule);
+				Object[] newModules = (Object[]) Array.newInstance(assignableType, replace ? modules.length : modules.length - 1);
+				int index = 0;
+				for (Object module : modules) {
+					if (module != oldModule)
+						newModules[index++] = module;
+					else if (replace)
+						newModules[index++] = newModule;
+				}
+				assignableModules.put(assignableType, newModules);
+			}
+		}
+
+		for (Class<?> assignableType : ModuleBindings.getAssignableTypes(newModule.getClass())) {
+			if (!assignableType.isInstance(oldModule))
+				indexModule(newModule, assignableType);
+		}
+	}
+
 	protected void onBuildCompleted() {}
 
+	/**
+	 * Released items of the given type would be returned to a pool of up to maxSize items, and reused by the next items created of that type.
+	 * <br>
+	 * Override {@link ModuleItem#onRecycled()} to reset the state of a released item, it is only called for items returned to the pool.
+	 *
+	 * @return The pool of the item type, exposing its hit/miss statistics.
+	 */
+	@SuppressWarnings("unchecked")
+	public final <Type extends ModuleItem> ModuleItemPool<Type> enableModuleItemPooling(Class<Type> moduleItemType, int maxSize) {
+		ModuleItemPool<Type> pool = new ModuleItemPool<>(moduleItemType, maxSize);
+		ModuleItemPool<Type> existingPool = (ModuleItemPool<Type>) moduleItemPools.putIfAbsent(moduleItemType, pool);
+		return existingPool != null ? existingPool : pool;
+	}
+
+	/**
+	 * @return The pool of the item type, or null if pooling was not enabled for it.
+	 */
+	@SuppressWarnings("unchecked")
+	public final <Type extends ModuleItem> ModuleItemPool<Type> getModuleItemPool(Class<Type> moduleItemType) {
+		return (ModuleItemPool<Type>) moduleItemPools.get(moduleItemType);
+	}
+
+	final <Type extends ModuleItem> Type createModuleItem(Class<Type> moduleItemType) {
+		ModuleItemPool<Type> pool = getModuleItemPool(moduleItemType);
+		Type moduleItem = pool == null ? null : pool.acquire();
+		if (moduleItem != null) {
+			moduleItem.setActive();
+			eventDispatcher.addListener(moduleItem, ModuleBindings.getListenerTypes(moduleItemType));
+			moduleItem.init();
+			return moduleItem;
+		}
+
+		moduleItem = ReflectiveTools.newInstance(moduleItemType);
+		moduleItem.setModuleManager(this);
+		moduleItem.setActive();
+		moduleItem._prepare();
+		moduleItem.init();
+		return moduleItem;
+	}
+
 	final void prepareModuleItem(ModuleItem moduleItem) {
-		getInjector().injectToInstance(moduleItem);
-		eventDispatcher.addListener(moduleItem);
+		trackModuleItem(moduleItem);
+		getInjector().inject(moduleItem);
+		eventDispatcher.addListener(moduleItem, ModuleBindings.getListenerTypes(moduleItem.getClass()));
 	}
 
+	@SuppressWarnings("unchecked")
 	final void disposeModuleItem(ModuleItem moduleItem) {
 		eventDispatcher.removeListener(moduleItem);
+
+		ModuleItemPool<ModuleItem> pool = (ModuleItemPool<ModuleItem>) moduleItemPools.get(moduleItem.getClass());
+		boolean pooled = false;
+		try {
+			pooled = pool != null && pool.recycle(moduleItem);
+		} finally {
+			// pooled items remain tracked, so they hold the replacing modules once they are reused
+			if (!pooled)
+				untrackModuleItem(moduleItem);
+		}
+	}
+
+	/**
+	 * Tracks the item before it is injected, so replacing one of its modules re-injects it, items without module fields are not tracked.
+	 */
+	private void trackModuleItem(ModuleItem moduleItem) {
+		Class<? extends ModuleItem> moduleItemType = moduleItem.getClass();
+		if (moduleInjector.getInjectedTypes(moduleItemType).length == 0)
+			return;
+
+		ModuleDependents moduleItems = liveModuleItems.get(moduleItemType);
+		if (moduleItems == null) {
+			moduleItems = new ModuleDependents();
+			ModuleDependents existing = liveModuleItems.putIfAbsent(moduleItemType, moduleItems);
+			if (existing != null)
+				moduleItems = existing;
+		}
+
+		moduleItem.setTrackingReference(moduleItems.add(moduleItem));
+	}
+
+	private void untrackModuleItem(ModuleItem moduleItem) {
+		Reference<Object> trackingReference = moduleItem.getTrackingReference();
+		if (trackingReference == null)
+			return;
+
+		liveModuleItems.get(moduleItem.getClass()).remove(trackingReference);
+		moduleItem.setTrackingReference(null);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -241,4 +1238,48 @@ public class ModuleManager
 			originator.logInfo("Dispatching Module Event: " + message);
 		eventDispatcher.dispatchEvent(null, listenerType, processor);
 	}
+
+	/**
+	 * Delivers the event to the listeners in priority order, until one of the listeners consumes it.
+	 *
+	 * @return The listener which consumed the event, or null if none of the listeners consumed it.
+	 */
+	public <ListenerType> ListenerType dispatchConsumableModuleEvent(ILogger originator, String message, Class<ListenerType> listenerType,
+	                                                                 ConsumableProcessor<ListenerType> processor) {
+		if (originator != null)
+			originator.logInfo("Dispatching Consumable Module Event: " + message);
+		return eventDispatcher.dispatchConsumableEvent(null, listenerType, processor);
+	}
+
+	/**
+	 * @param listenerType The listener type of the events to dispatch through the channel.
+	 *
+	 * @return A reusable channel that dispatches module events directly to the pre-resolved listeners of the given type.
+	 */
+	public final <ListenerType> EventChannel<ListenerType> channel(Class<ListenerType> listenerType) {
+		return eventDispatcher.getChannel(listenerType);
+	}
+
+	/**
+	 * Same as {@link #dispatchModuleEvent(ILogger, String, Class, Processor)}, but the delivery to each of the listeners happens on the event executor.
+	 *
+	 * @return A handle to await the delivery and collect the listeners errors.
+	 */
+	public <ListenerType> EventDispatchHandle dispatchModuleEventAsync(ILogger originator, String message, Class<ListenerType> listenerType, Processor<ListenerType> processor) {
+		if (originator != null)
+			originator.logInfo("Dispatching Async Module Event: " + message);
+		return eventDispatcher.dispatchEventAsync(getEventExecutor(), listenerType, processor);
+	}
+
+	/**
+	 * Queues the event to be delivered with the next batch of its listener type.
+	 *
+	 * @param coalescingKey Events of the same listener type and key which are pending delivery are merged, null if this event must not be merged.
+	 */
+	public <ListenerType> void dispatchModuleEventBatched(ILogger originator, String message, Object coalescingKey, Class<ListenerType> listenerType,
+	                                                      Processor<ListenerType> processor) {
+		if (originator != null)
+			originator.logInfo("Queueing Module Event: " + message);
+		getEventQueue().enqueue(listenerType, coalescingKey, processor);
+	}
 }
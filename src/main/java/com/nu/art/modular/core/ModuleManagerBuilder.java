@@ -23,11 +23,17 @@ package com.nu.art.modular.core;
 import com.nu.art.belog.Logger;
 import com.nu.art.modular.core.ModuleManager.ModuleCreatedListener;
 import com.nu.art.modular.core.ModuleManager.ModuleInitializedListener;
+import com.nu.art.modular.core.StartupCache.ModuleMetadata;
 import com.nu.art.modular.interfaces.OnApplicationStartingListener;
+import com.nu.art.modular.metrics.StartupProfiler;
+import com.nu.art.modular.metrics.StartupProfiler.Phase;
 import com.nu.art.reflection.tools.ReflectiveTools;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.Executor;
 
 public class ModuleManagerBuilder
 	extends Logger
@@ -38,6 +44,13 @@ public class ModuleManagerBuilder
 	private ModuleCreatedListener moduleCreatedListener = (this instanceof ModuleCreatedListener ? (ModuleCreatedListener) this : null);
 	protected final ModuleManager manager = new ModuleManager();
 	private OnApplicationStartingListener listener = this;
+	private Executor eventExecutor;
+	private boolean parallelInit;
+	private boolean lazyModules;
+	private StartupProfiler startupProfiler;
+	private File startupCacheFile;
+	private boolean deferredDiagnostics;
+	private String startupCacheVersion;
 
 	public ModuleManagerBuilder() {
 	}
@@ -58,6 +71,62 @@ public class ModuleManagerBuilder
 		return this;
 	}
 
+	public ModuleManagerBuilder setEventExecutor(Executor eventExecutor) {
+		this.eventExecutor = eventExecutor;
+		return this;
+	}
+
+	/**
+	 * @param parallelInit Whether to initialize independent modules in parallel, modules are always initialized after the modules injected into them.
+	 */
+	public ModuleManagerBuilder setParallelInit(boolean parallelInit) {
+		this.parallelInit = parallelInit;
+		return this;
+	}
+
+	/**
+	 * @param lazyModules Whether to register the modules by type only, and instantiate, inject and initialize each module the first time it is
+	 *                    requested or injected into another module.
+	 *                    <br>
+	 *                    Additional keys a module adds in its constructor can only be resolved once the module was instantiated.
+	 */
+	public ModuleManagerBuilder setLazyModules(boolean lazyModules) {
+		this.lazyModules = lazyModules;
+		return this;
+	}
+
+	/**
+	 * @param startupProfiler The profiler to record the build phases to, per module, see {@link StartupProfiler#toChromeTrace()}.
+	 */
+	public ModuleManagerBuilder setStartupProfiler(StartupProfiler startupProfiler) {
+		this.startupProfiler = startupProfiler;
+		return this;
+	}
+
+	/**
+	 * Caches the metadata resolved reflectively during the build: the modules order and keys, their default interfaces and the module fields of the
+	 * injected types, so the following builds load it from the file instead.
+	 * <br>
+	 * The cache is keyed by a fingerprint of the version, the classpath and the module packs, and is rebuilt whenever the fingerprint changes.
+	 *
+	 * @param cacheFile The file to store the cache in, or null to disable the cache.
+	 * @param version   The application version, MUST change whenever the modules code changes without changing the classpath, e.g. on Android.
+	 */
+	public ModuleManagerBuilder setStartupCache(File cacheFile, String version) {
+		this.startupCacheFile = cacheFile;
+		this.startupCacheVersion = version;
+		return this;
+	}
+
+	/**
+	 * @param deferredDiagnostics Whether to buffer the startup banner and the modules details, and write them on a background thread once the manager is
+	 *                            ready, only the details of modules whose {@link Module#DebugFlag} is enabled are printed.
+	 */
+	public ModuleManagerBuilder setDeferredDiagnostics(boolean deferredDiagnostics) {
+		this.deferredDiagnostics = deferredDiagnostics;
+		return this;
+	}
+
 	@SuppressWarnings("unchecked")
 	public final ModuleManagerBuilder addModulePacks(Class<? extends ModulesPack>... modulePacks) {
 		for (Class<? extends ModulesPack> packType : modulePacks) {
@@ -81,46 +150,105 @@ public class ModuleManagerBuilder
 	public final ModuleManager build() {
 		manager.setModuleCreatedListener(this.moduleCreatedListener);
 		manager.setModuleInitializedListener(this.moduleInitializedListener);
+		if (eventExecutor != null)
+			manager.setEventExecutor(eventExecutor);
+		manager.setParallelInit(parallelInit);
+		manager.setStartupProfiler(startupProfiler);
+		manager.setDeferredDiagnostics(deferredDiagnostics);
 
-		ArrayList<Class<? extends Module>> modulesTypes = new ArrayList<>();
+		StartupCache startupCache = loadStartupCache();
+		ModuleMetadata[] cachedModules = startupCache == null ? null : startupCache.getModules();
+		if (cachedModules != null)
+			manager.setCachedMetadata(cachedModules, startupCache.getInjectedFields());
 
+		ArrayList<Class<? extends Module>> modulesTypes = new ArrayList<>();
 		for (ModulesPack pack : modulePacks) {
 			pack.setManager(manager);
+			if (cachedModules != null)
+				continue;
+
 			for (Class<? extends Module> moduleType : pack.moduleTypes) {
 				if (modulesTypes.contains(moduleType))
 					continue;
 
 				modulesTypes.add(moduleType);
-				manager.registerModule(moduleType);
+				if (lazyModules)
+					manager.registerLazyModuleType(moduleType);
+				else
+					manager.registerModule(moduleType);
 			}
 		}
 
+		if (cachedModules != null)
+			for (ModuleMetadata cachedModule : cachedModules) {
+				modulesTypes.add(cachedModule.moduleType);
+				if (lazyModules)
+					manager.registerLazyModuleType(cachedModule.moduleType, cachedModule.keys);
+				else
+					manager.registerModule(cachedModule.moduleType);
+			}
+
 		for (ModulesPack pack : modulePacks) {
+			long startNanos = System.nanoTime();
 			pack.init();
+			manager.profile(Phase.PackInit, pack, startNanos);
 		}
 
 		Module[] registeredModules = manager.getOrderedModules();
+		long startNanos = System.nanoTime();
 		validateModules(registeredModules);
+		manager.profile(Phase.Validate, null, startNanos);
 
 		for (Module registeredModule : registeredModules) {
-			manager.getInjector().injectToInstance(registeredModule);
+			startNanos = System.nanoTime();
+			manager.getInjector().inject(registeredModule);
+			manager.profile(Phase.Inject, registeredModule, startNanos);
 		}
 
-		logVerbose(" Application Starting...");
-		logVerbose(" ");
+		manager.writeDiagnostic(new Runnable() {
+			@Override
+			public void run() {
+				logVerbose(" Application Starting...");
+				logVerbose(" ");
+			}
+		});
 
+		startNanos = System.nanoTime();
 		listener.onApplicationStarting();
+		manager.profile(Phase.ApplicationStarting, null, startNanos);
 		manager.init();
-		for (Module module : registeredModules) {
-			logInfo("----------- " + module.getClass().getSimpleName() + " ------------");
-			module.printDetails();
-			logInfo("-------- End of " + module.getClass().getSimpleName() + " --------");
-		}
 
 		manager.onBuildCompleted();
+
+		if (startupCache != null && cachedModules == null)
+			saveStartupCache(startupCache, modulesTypes);
+
 		return manager;
 	}
 
+	private StartupCache loadStartupCache() {
+		if (startupCacheFile == null)
+			return null;
+
+		StartupCache startupCache = new StartupCache(startupCacheFile, StartupCache.fingerprint(startupCacheVersion, modulePacks));
+		try {
+			if (!startupCache.load())
+				logInfo("Startup cache is missing or outdated: " + startupCacheFile);
+		} catch (IOException e) {
+			logWarning("Error loading startup cache: " + startupCacheFile, e);
+		}
+
+		return startupCache;
+	}
+
+	private void saveStartupCache(StartupCache startupCache, ArrayList<Class<? extends Module>> modulesTypes) {
+		try {
+			startupCache.save(manager.getModulesMetadata(modulesTypes), manager.getInjector().getInjectedFields());
+		} catch (IOException e) {
+			logWarning("Error saving startup cache: " + startupCacheFile, e);
+		}
+	}
+
 	private void validateModules(Module[] allRegisteredModuleInstances) {
 		ValidationResult result = new ValidationResult();
 
@@ -135,6 +263,15 @@ public class ModuleManagerBuilder
 	}
 
 	public void onApplicationStarting() {
+		manager.writeDiagnostic(new Runnable() {
+			@Override
+			public void run() {
+				printBanner();
+			}
+		});
+	}
+
+	private void printBanner() {
 		logVerbose(" _______  _______  _______  _       _________ _______  _______ __________________ _______  _          _______ _________ _______  _______ _________ _______  ______  ");
 		logVerbose("(  ___  )(  ____ )(  ____ )( \\      \\__   __/(  ____ \\(  ___  )\\__   __/\\__   __/(  ___  )( (    /|  (  ____ \\\\__   __/(  ___  )(  ____ )\\__   __/(  ____ \\(  __  \\ ");
 		logVerbose("| (   ) || (    )|| (    )|| (         ) (   | (    \\/| (   ) |   ) (      ) (   | (   ) ||  \\  ( |  | (    \\/   ) (   | (   ) || (    )|   ) (   | (    \\/| (  \\  )");
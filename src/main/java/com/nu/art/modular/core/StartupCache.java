@@ -0,0 +1,347 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nu.art.modular.core;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * The startup metadata resolved reflectively on a cold boot: the modules order, each module's keys and default interface, and the module fields of
+ * each injected type.
+ * <br>
+ * The metadata is stored in a compact binary file keyed by a fingerprint of the classpath, the module packs and the class files or jars they were loaded
+ * from, a warm boot with a matching fingerprint loads it from the memory mapped file instead of resolving it again, any other fingerprint invalidates
+ * the file. The module fields of each injected type are stored with the stamps of the type and its superclasses, so recompiling any of them
+ * invalidates the file as well.
+ */
+final class StartupCache {
+
+	private static final int Magic = 0x4D4D5343;
+
+	private static final int FormatVersion = 2;
+
+	static final class ModuleMetadata {
+
+		final Class<? extends Module> moduleType;
+
+		final Class<? extends Module>[] keys;
+
+		/**
+		 * Whether the default interface of the module was resolved, it is not when the module was never instantiated or is bound via its binding.
+		 */
+		final boolean interfaceResolved;
+
+		/**
+		 * The default interface of the module, or null if the module has none.
+		 */
+		final Class<?> defaultInterface;
+
+		ModuleMetadata(Class<? extends Module> moduleType, Class<? extends Module>[] keys, boolean interfaceResolved, Class<?> defaultInterface) {
+			this.moduleType = moduleType;
+			this.keys = keys;
+			this.interfaceResolved = interfaceResolved;
+			this.defaultInterface = defaultInterface;
+		}
+	}
+
+	private final File file;
+
+	private final long fingerprint;
+
+	private final ClassLoader classLoader;
+
+	private ModuleMetadata[] modules;
+
+	private LinkedHashMap<Class<?>, Field[]> injectedFields;
+
+	StartupCache(File file, long fingerprint) {
+		this.file = file;
+		this.fingerprint = fingerprint;
+
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		this.classLoader = classLoader != null ? classLoader : StartupCache.class.getClassLoader();
+	}
+
+	/**
+	 * @return A fingerprint of the given version, the classpath, the module types of each of the packs, and the last modified time and size of the
+	 * class files or jars the packs, the modules and their superclasses were loaded from.
+	 */
+	static long fingerprint(String version, List<ModulesPack> modulePacks) {
+		StringBuilder source = new StringBuilder(version).append('\n').append(System.getProperty("java.class.path", "")).append('\n');
+		HashSet<File> stampedJars = new HashSet<>();
+		for (ModulesPack pack : modulePacks) {
+			source.append(pack.getClass().getName());
+			appendClassStamp(source, pack.getClass(), stampedJars);
+			source.append(':');
+			for (Class<? extends Module> moduleType : pack.moduleTypes) {
+				source.append(moduleType.getName());
+				appendHierarchyStamp(source, moduleType, stampedJars);
+				source.append(',');
+			}
+			source.append('\n');
+		}
+
+		// 64 bit FNV-1a
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < source.length(); i++) {
+			hash ^= source.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * @return The stamps of the class files or jars the type and its superclasses were loaded from.
+	 */
+	static String hierarchyStamp(Class<?> type) {
+		StringBuilder stamp = new StringBuilder();
+		appendHierarchyStamp(stamp, type, new HashSet<File>());
+		return stamp.toString();
+	}
+
+	private static void appendHierarchyStamp(StringBuilder source, Class<?> type, HashSet<File> stampedJars) {
+		for (Class<?> stampedType = type; stampedType != null && stampedType != Object.class; stampedType = stampedType.getSuperclass()) {
+			appendClassStamp(source, stampedType, stampedJars);
+		}
+	}
+
+	/**
+	 * Appends the last modified time and size of the class file the type was loaded from, or of its jar the first time the jar is encountered, so
+	 * recompiling a module invalidates the cache even when the classpath and the version did not change.
+	 * <br>
+	 * Types which were not loaded from a local file, e.g. on Android, are only covered by the version.
+	 */
+	private static void appendClassStamp(StringBuilder source, Class<?> type, HashSet<File> stampedJars) {
+		URL url = type.getResource("/" + type.getName().replace('.', '/') + ".class");
+		if (url == null)
+			return;
+
+		File file;
+		try {
+			if ("jar".equals(url.getProtocol())) {
+				String path = url.getPath();
+				int separator = path.indexOf("!/");
+				if (separator == -1)
+					return;
+
+				url = new URL(path.substring(0, separator));
+			}
+
+			if (!"file".equals(url.getProtocol()))
+				return;
+
+			file = new File(url.toURI());
+		} catch (MalformedURLException | URISyntaxException | IllegalArgumentException e) {
+			return;
+		}
+
+		if (file.getName().endsWith(".class") || stampedJars.add(file))
+			source.append('@').append(file.lastModified()).append('/').append(file.length());
+	}
+
+	/**
+	 * @return The cached modules in registration order, or null if the cache was not loaded.
+	 */
+	final ModuleMetadata[] getModules() {
+		return modules;
+	}
+
+	final LinkedHashMap<Class<?>, Field[]> getInjectedFields() {
+		return injectedFields;
+	}
+
+	/**
+	 * Loads and resolves the cached metadata, a missing file, a different fingerprint, an injected type which was recompiled, or a type or field which
+	 * cannot be resolved anymore, all leave the cache unloaded.
+	 *
+	 * @return Whether the cached metadata was loaded.
+	 *
+	 * @throws IOException If the file is corrupted, the cache is left unloaded.
+	 */
+	@SuppressWarnings("unchecked")
+	final boolean load()
+		throws IOException {
+		if (!file.isFile())
+			return false;
+
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			DataInputStream input = new DataInputStream(new ByteBufferInputStream(buffer));
+			if (input.readInt() != Magic || input.readInt() != FormatVersion || input.readLong() != fingerprint)
+				return false;
+
+			ModuleMetadata[] modules = new ModuleMetadata[readCount(input, buffer)];
+			for (int i = 0; i < modules.length; i++) {
+				Class<? extends Module> moduleType = resolveClass(input.readUTF()).asSubclass(Module.class);
+				Class<? extends Module>[] keys = new Class[readCount(input, buffer)];
+				for (int j = 0; j < keys.length; j++) {
+					keys[j] = resolveClass(input.readUTF()).asSubclass(Module.class);
+				}
+
+				boolean interfaceResolved = input.readBoolean();
+				String defaultInterface = input.readUTF();
+				modules[i] = new ModuleMetadata(moduleType, keys, interfaceResolved, defaultInterface.isEmpty() ? null : resolveClass(defaultInterface));
+			}
+
+			LinkedHashMap<Class<?>, Field[]> injectedFields = new LinkedHashMap<>();
+			int injectedTypesCount = readCount(input, buffer);
+			for (int i = 0; i < injectedTypesCount; i++) {
+				Class<?> injectedType = resolveClass(input.readUTF());
+				if (!hierarchyStamp(injectedType).equals(input.readUTF()))
+					return false;
+
+				Field[] fields = new Field[readCount(input, buffer)];
+				for (int j = 0; j < fields.length; j++) {
+					fields[j] = resolveClass(input.readUTF()).getDeclaredField(input.readUTF());
+				}
+				injectedFields.put(injectedType, fields);
+			}
+
+			this.modules = modules;
+			this.injectedFields = injectedFields;
+			return true;
+		} catch (ClassNotFoundException | NoSuchFieldException | ClassCastException e) {
+			return false;
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Every counted entry takes at least one byte, so a count larger than the remaining bytes can only be read from a corrupted file.
+	 */
+	private static int readCount(DataInputStream input, ByteBuffer buffer)
+		throws IOException {
+		int count = input.readInt();
+		if (count < 0 || count > buffer.remaining())
+			throw new IOException("Corrupted startup cache, invalid count: " + count);
+
+		return count;
+	}
+
+	/**
+	 * Writes the metadata to a unique temporary file which is then renamed over the cache file, so a concurrent or interrupted boot never reads a
+	 * partial file, and concurrent boots never write to the same temporary file.
+	 * <br>
+	 * Where a rename cannot replace an existing file the cache file is deleted first, a boot reading meanwhile finds no cache and boots cold.
+	 */
+	final void save(ModuleMetadata[] modules, LinkedHashMap<Class<?>, Field[]> injectedFields)
+		throws IOException {
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null && !parent.isDirectory() && !parent.mkdirs())
+			throw new IOException("Cannot create folder: " + parent);
+
+		File tempFile = File.createTempFile("." + file.getName() + "-", ".tmp", parent);
+		boolean moved = false;
+		try {
+			write(tempFile, modules, injectedFields);
+			moved = tempFile.renameTo(file) || file.delete() && tempFile.renameTo(file);
+			if (!moved)
+				throw new IOException("Cannot replace startup cache: " + file);
+		} finally {
+			if (!moved && !tempFile.delete())
+				tempFile.deleteOnExit();
+		}
+	}
+
+	private void write(File tempFile, ModuleMetadata[] modules, LinkedHashMap<Class<?>, Field[]> injectedFields)
+		throws IOException {
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+		try {
+			output.writeInt(Magic);
+			output.writeInt(FormatVersion);
+			output.writeLong(fingerprint);
+
+			output.writeInt(modules.length);
+			for (ModuleMetadata module : modules) {
+				output.writeUTF(module.moduleType.getName());
+				output.writeInt(module.keys.length);
+				for (Class<? extends Module> key : module.keys) {
+					output.writeUTF(key.getName());
+				}
+				output.writeBoolean(module.interfaceResolved);
+				output.writeUTF(module.defaultInterface == null ? "" : module.defaultInterface.getName());
+			}
+
+			output.writeInt(injectedFields.size());
+			for (Entry<Class<?>, Field[]> entry : injectedFields.entrySet()) {
+				output.writeUTF(entry.getKey().getName());
+				output.writeUTF(hierarchyStamp(entry.getKey()));
+				output.writeInt(entry.getValue().length);
+				for (Field field : entry.getValue()) {
+					output.writeUTF(field.getDeclaringClass().getName());
+					output.writeUTF(field.getName());
+				}
+			}
+		} finally {
+			output.close();
+		}
+	}
+
+	private Class<?> resolveClass(String className)
+		throws ClassNotFoundException {
+		return Class.forName(className, false, classLoader);
+	}
+
+	private static final class ByteBufferInputStream
+		extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		private ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (!buffer.hasRemaining())
+				return -1;
+
+			length = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, length);
+			return length;
+		}
+	}
+}
@@ -0,0 +1,37 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nu.art.modular.exceptions;
+
+/**
+ * Aggregates the errors thrown by the listeners of a single asynchronous event dispatch, each listener error is attached as a suppressed exception.
+ */
+public class EventDispatchException
+	extends RuntimeException {
+
+	private static final long serialVersionUID = 3391583145573632416L;
+
+	public EventDispatchException(Class<?> eventType, Throwable[] errors) {
+		super("Error while processing event: " + eventType.getSimpleName() + ", " + errors.length + " listener(s) failed", errors.length == 0 ? null : errors[0]);
+		for (int i = 1; i < errors.length; i++) {
+			addSuppressed(errors[i]);
+		}
+	}
+}
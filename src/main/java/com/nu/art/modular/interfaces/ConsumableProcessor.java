@@ -0,0 +1,12 @@
+package com.nu.art.modular.interfaces;
+
+/**
+ * Processes an event by its listeners in priority order, until one of the listeners consumes the event.
+ */
+public interface ConsumableProcessor<ListenerType> {
+
+	/**
+	 * @return Whether the listener has consumed the event, in which case the event is not delivered to the rest of the listeners.
+	 */
+	boolean process(ListenerType listener);
+}
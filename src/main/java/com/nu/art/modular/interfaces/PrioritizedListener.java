@@ -0,0 +1,15 @@
+package com.nu.art.modular.interfaces;
+
+/**
+ * A listener which should receive module events before or after other listeners of the same event, listeners which do not implement this interface
+ * have a priority of 0.
+ */
+public interface PrioritizedListener {
+
+	/**
+	 * Read once, when the listener is registered.
+	 *
+	 * @return The priority of the listener, listeners with a higher priority receive the events first.
+	 */
+	int getListenerPriority();
+}
@@ -0,0 +1,147 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nu.art.modular.metrics;
+
+import java.util.Locale;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the event dispatching metrics of a dispatcher, per listener interface: the number of dispatches, the number of listeners each dispatch was
+ * delivered to, and the latency of each listener implementation handling the events.
+ */
+public final class DispatchMetrics {
+
+	public static final class EventMetrics {
+
+		private final Class<?> eventType;
+
+		private final StripedCounter dispatches = new StripedCounter();
+
+		private final StripedCounter deliveries = new StripedCounter();
+
+		private final AtomicLong maxFanOut = new AtomicLong();
+
+		/**
+		 * Listener implementation type to the latency of its handling of this event type.
+		 */
+		private final ConcurrentHashMap<Class<?>, LatencyHistogram> handlerLatencies = new ConcurrentHashMap<>();
+
+		private EventMetrics(Class<?> eventType) {
+			this.eventType = eventType;
+		}
+
+		/**
+		 * @param fanOut The number of listeners the event was delivered to.
+		 */
+		public final void onDispatched(int fanOut) {
+			dispatches.increment();
+			deliveries.add(fanOut);
+
+			long max;
+			while (fanOut > (max = maxFanOut.get())) {
+				if (maxFanOut.compareAndSet(max, fanOut))
+					break;
+			}
+		}
+
+		public final void onListenerProcessed(Class<?> listenerType, long durationNanos) {
+			getHandlerLatency(listenerType).record(durationNanos);
+		}
+
+		public final Class<?> getEventType() {
+			return eventType;
+		}
+
+		public final long getDispatchCount() {
+			return dispatches.sum();
+		}
+
+		public final long getDeliveryCount() {
+			return deliveries.sum();
+		}
+
+		public final double getMeanFanOut() {
+			long dispatches = getDispatchCount();
+			return dispatches == 0 ? 0 : (double) getDeliveryCount() / dispatches;
+		}
+
+		public final long getMaxFanOut() {
+			return maxFanOut.get();
+		}
+
+		public final Class<?>[] getListenerTypes() {
+			return handlerLatencies.keySet().toArray(new Class<?>[0]);
+		}
+
+		public final LatencyHistogram getHandlerLatency(Class<?> listenerType) {
+			LatencyHistogram histogram = handlerLatencies.get(listenerType);
+			if (histogram != null)
+				return histogram;
+
+			histogram = new LatencyHistogram();
+			LatencyHistogram existing = handlerLatencies.putIfAbsent(listenerType, histogram);
+			return existing != null ? existing : histogram;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder description = new StringBuilder(eventType.getName());
+			description.append(" - dispatches: ").append(getDispatchCount());
+			description.append(", mean fan-out: ").append(String.format(Locale.ENGLISH, "%.1f", getMeanFanOut()));
+			description.append(", max fan-out: ").append(getMaxFanOut());
+			for (Entry<Class<?>, LatencyHistogram> entry : handlerLatencies.entrySet()) {
+				description.append("\n    ").append(entry.getKey().getName()).append(": ").append(entry.getValue());
+			}
+			return description.toString();
+		}
+	}
+
+	private final ConcurrentHashMap<Class<?>, EventMetrics> eventMetrics = new ConcurrentHashMap<>();
+
+	public final EventMetrics getEventMetrics(Class<?> eventType) {
+		EventMetrics metrics = eventMetrics.get(eventType);
+		if (metrics != null)
+			return metrics;
+
+		metrics = new EventMetrics(eventType);
+		EventMetrics existing = eventMetrics.putIfAbsent(eventType, metrics);
+		return existing != null ? existing : metrics;
+	}
+
+	public final EventMetrics[] getAllEventMetrics() {
+		return eventMetrics.values().toArray(new EventMetrics[0]);
+	}
+
+	public final void reset() {
+		eventMetrics.clear();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder description = new StringBuilder("Dispatch metrics:");
+		for (EventMetrics metrics : eventMetrics.values()) {
+			description.append("\n  ").append(metrics);
+		}
+		return description.toString();
+	}
+}
@@ -0,0 +1,207 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nu.art.modular.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock free, fixed size histogram of durations in nanoseconds, in the spirit of HdrHistogram.
+ * <br>
+ * Values are counted in log-linear buckets: each power of two range is split into {@link #SubBucketCount}/2 linear buckets, so every recorded value
+ * is kept with a relative error of at most ~6%, over the whole positive long range, using a constant amount of memory.
+ * <br>
+ * The buckets and the max value are striped like a {@link StripedCounter}, so threads recording concurrently do not contend on the same cells, the
+ * stripes are merged when the histogram is read. The buckets of a stripe, ~7.5KB, are only allocated once a thread records into it, so a histogram
+ * recorded by a single thread holds a single set of buckets.
+ */
+public final class LatencyHistogram {
+
+	private static final int SubBucketBits = 5;
+
+	private static final int SubBucketCount = 1 << SubBucketBits;
+
+	private static final int SubBucketHalfCount = SubBucketCount / 2;
+
+	private static final int BucketsCount = SubBucketCount + (Long.SIZE - 1 - SubBucketBits) * SubBucketHalfCount;
+
+	/**
+	 * The number of longs between two stripes' max values, so the max values of different stripes never share a 64 bytes cache line.
+	 */
+	private static final int CellPadding = 8;
+
+	/**
+	 * Each stripe holds a full set of buckets, so the stripes are capped to bound the memory of a histogram on many cores machines.
+	 */
+	private static final int MaxStripes = 4;
+
+	private final int stripeMask;
+
+	/**
+	 * The buckets of each stripe, null until a value is recorded into the stripe.
+	 */
+	private final AtomicReferenceArray<AtomicLongArray> stripes;
+
+	private final AtomicLongArray maxValues;
+
+	private final StripedCounter totalCount = new StripedCounter();
+
+	private final StripedCounter totalValue = new StripedCounter();
+
+	public LatencyHistogram() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param stripes The number of stripes to spread the recorded values over, rounded up to a power of two, and capped at {@link #MaxStripes}.
+	 */
+	public LatencyHistogram(int stripes) {
+		int size = Math.min(MaxStripes, Integer.highestOneBit(Math.max(1, stripes - 1)) << 1);
+		stripeMask = size - 1;
+		this.stripes = new AtomicReferenceArray<>(size);
+		maxValues = new AtomicLongArray(size * CellPadding);
+	}
+
+	/**
+	 * @param value The value to record, negative values are recorded as 0.
+	 */
+	public final void record(long value) {
+		if (value < 0)
+			value = 0;
+
+		int stripe = StripedCounter.threadStripe() & stripeMask;
+		getStripeCounts(stripe).incrementAndGet(bucketIndex(value));
+		totalCount.increment();
+		totalValue.add(value);
+
+		int maxIndex = stripe * CellPadding;
+		long max;
+		while (value > (max = maxValues.get(maxIndex))) {
+			if (maxValues.compareAndSet(maxIndex, max, value))
+				break;
+		}
+	}
+
+	private AtomicLongArray getStripeCounts(int stripe) {
+		AtomicLongArray counts = stripes.get(stripe);
+		if (counts != null)
+			return counts;
+
+		counts = new AtomicLongArray(BucketsCount);
+		if (stripes.compareAndSet(stripe, null, counts))
+			return counts;
+
+		return stripes.get(stripe);
+	}
+
+	public final long getCount() {
+		return totalCount.sum();
+	}
+
+	public final long getMax() {
+		long max = 0;
+		for (int i = 0; i < maxValues.length(); i += CellPadding) {
+			max = Math.max(max, maxValues.get(i));
+		}
+		return max;
+	}
+
+	public final double getMean() {
+		long count = getCount();
+		return count == 0 ? 0 : (double) totalValue.sum() / count;
+	}
+
+	/**
+	 * @param percentile The percentile between 0 and 100.
+	 *
+	 * @return The highest value which is equivalent, within the histogram precision, to the value at the given percentile.
+	 */
+	public final long getValueAtPercentile(double percentile) {
+		long[] counts = new long[BucketsCount];
+		long count = 0;
+		for (int stripe = 0; stripe < stripes.length(); stripe++) {
+			AtomicLongArray stripeCounts = stripes.get(stripe);
+			if (stripeCounts == null)
+				continue;
+
+			for (int i = 0; i < BucketsCount; i++) {
+				long bucketCount = stripeCounts.get(i);
+				counts[i] += bucketCount;
+				count += bucketCount;
+			}
+		}
+
+		if (count == 0)
+			return 0;
+
+		long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+		long accumulated = 0;
+		for (int i = 0; i < BucketsCount; i++) {
+			accumulated += counts[i];
+			if (accumulated >= rank)
+				return Math.min(highestEquivalentValue(i), getMax());
+		}
+
+		return getMax();
+	}
+
+	public final void reset() {
+		for (int stripe = 0; stripe < stripes.length(); stripe++) {
+			AtomicLongArray stripeCounts = stripes.get(stripe);
+			if (stripeCounts == null)
+				continue;
+
+			for (int i = 0; i < BucketsCount; i++) {
+				stripeCounts.set(i, 0);
+			}
+		}
+		for (int i = 0; i < maxValues.length(); i += CellPadding) {
+			maxValues.set(i, 0);
+		}
+		totalCount.reset();
+		totalValue.reset();
+	}
+
+	private static int bucketIndex(long value) {
+		if (value < SubBucketCount)
+			return (int) value;
+
+		int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SubBucketBits;
+		int subBucket = (int) (value >>> shift);
+		return SubBucketCount + (shift - 1) * SubBucketHalfCount + subBucket - SubBucketHalfCount;
+	}
+
+	private static long highestEquivalentValue(int index) {
+		if (index < SubBucketCount)
+			return index;
+
+		int shift = (index - SubBucketCount) / SubBucketHalfCount + 1;
+		long subBucket = (index - SubBucketCount) % SubBucketHalfCount + SubBucketHalfCount;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ENGLISH, "count: %d, mean: %.1fus, p50: %.1fus, p99: %.1fus, p999: %.1fus, max: %.1fus", getCount(), getMean() / 1000,
+		                     getValueAtPercentile(50) / 1000d, getValueAtPercentile(99) / 1000d, getValueAtPercentile(99.9) / 1000d, getMax() / 1000d);
+	}
+}
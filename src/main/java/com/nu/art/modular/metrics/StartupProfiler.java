@@ -0,0 +1,283 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nu.art.modular.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+/**
+ * Records the timeline of the module manager startup, per phase and per module, along with the dependencies between the modules.
+ * <br>
+ * The timeline can be exported as JSON, or in the Chrome trace event format to be viewed in chrome://tracing or Perfetto.
+ */
+public final class StartupProfiler {
+
+	public enum Phase {
+		Instantiate,
+		PackInit,
+		Validate,
+		Inject,
+		ApplicationStarting,
+		AssignInterface,
+		Init,
+		PrintDetails,
+	}
+
+	private static final class Record {
+
+		private final Phase phase;
+		private final String name;
+		private final long startNanos;
+		private final long durationNanos;
+		private final long threadId;
+		private final String threadName;
+
+		private Record(Phase phase, String name, long startNanos, long durationNanos, Thread thread) {
+			this.phase = phase;
+			this.name = name;
+			this.startNanos = startNanos;
+			this.durationNanos = durationNanos;
+			this.threadId = thread.getId();
+			this.threadName = thread.getName();
+		}
+	}
+
+	private final long originNanos = System.nanoTime();
+
+	private final ArrayList<Record> records = new ArrayList<>();
+
+	private final LinkedHashMap<String, String[]> dependencies = new LinkedHashMap<>();
+
+	/**
+	 * @param phase      The startup phase.
+	 * @param name       The module or pack the phase was performed for, or null for a global phase.
+	 * @param startNanos The {@link System#nanoTime()} at which the phase has started.
+	 * @param endNanos   The {@link System#nanoTime()} at which the phase has ended.
+	 */
+	public final void record(Phase phase, String name, long startNanos, long endNanos) {
+		Record record = new Record(phase, name, startNanos - originNanos, endNanos - startNanos, Thread.currentThread());
+		synchronized (records) {
+			records.add(record);
+		}
+	}
+
+	/**
+	 * @param module       The module name.
+	 * @param dependencies The names of the modules injected into the module.
+	 */
+	public final void addDependencies(String module, String[] dependencies) {
+		synchronized (this.dependencies) {
+			this.dependencies.put(module, dependencies);
+		}
+	}
+
+	/**
+	 * @return The total duration recorded for the given module, across all phases.
+	 */
+	public final long getDurationNanos(String name) {
+		long duration = 0;
+		for (Record record : getRecords()) {
+			if (name.equals(record.name))
+				duration += record.durationNanos;
+		}
+		return duration;
+	}
+
+	/**
+	 * The critical path is the chain of dependent modules with the longest accumulated duration, which bounds the startup time no matter how many
+	 * modules are processed in parallel.
+	 *
+	 * @return The modules on the critical path, from the first dependency to the last dependent.
+	 */
+	public final String[] getCriticalPath() {
+		HashMap<String, Long> durations = new HashMap<>();
+		for (Record record : getRecords()) {
+			if (record.name == null)
+				continue;
+
+			Long duration = durations.get(record.name);
+			durations.put(record.name, (duration == null ? 0 : duration) + record.durationNanos);
+		}
+
+		HashMap<String, Long> pathDurations = new HashMap<>();
+		HashMap<String, String> previousOnPath = new HashMap<>();
+		String last = null;
+		for (String module : getDependencies().keySet()) {
+			long pathDuration = computePathDuration(module, durations, pathDurations, previousOnPath, new HashSet<String>());
+			if (last == null || pathDuration > pathDurations.get(last))
+				last = module;
+		}
+
+		ArrayList<String> path = new ArrayList<>();
+		for (String module = last; module != null; module = previousOnPath.get(module)) {
+			path.add(module);
+		}
+
+		Collections.reverse(path);
+		return path.toArray(new String[path.size()]);
+	}
+
+	/**
+	 * @return The accumulated duration of the modules on the critical path.
+	 */
+	public final long getCriticalPathDurationNanos() {
+		long duration = 0;
+		for (String module : getCriticalPath()) {
+			duration += getDurationNanos(module);
+		}
+		return duration;
+	}
+
+	private long computePathDuration(String module, HashMap<String, Long> durations, HashMap<String, Long> pathDurations,
+	                                 HashMap<String, String> previousOnPath, HashSet<String> visiting) {
+		Long pathDuration = pathDurations.get(module);
+		if (pathDuration != null)
+			return pathDuration;
+
+		// circular dependencies are not expected, but must not hang the profiler
+		if (!visiting.add(module))
+			return 0;
+
+		long longestDependency = 0;
+		String[] moduleDependencies = getDependencies().get(module);
+		if (moduleDependencies != null)
+			for (String dependency : moduleDependencies) {
+				long dependencyDuration = computePathDuration(dependency, durations, pathDurations, previousOnPath, visiting);
+				if (dependencyDuration <= longestDependency && previousOnPath.containsKey(module))
+					continue;
+
+				longestDependency = dependencyDuration;
+				previousOnPath.put(module, dependency);
+			}
+
+		visiting.remove(module);
+		Long duration = durations.get(module);
+		pathDuration = longestDependency + (duration == null ? 0 : duration);
+		pathDurations.put(module, pathDuration);
+		return pathDuration;
+	}
+
+	/**
+	 * @return The recorded timeline, dependencies and critical path as JSON.
+	 */
+	public final String toJson() {
+		StringBuilder json = new StringBuilder("{\n  \"records\": [");
+		Record[] records = getRecords();
+		for (int i = 0; i < records.length; i++) {
+			Record record = records[i];
+			json.append(i == 0 ? "\n" : ",\n");
+			json.append("    {\"phase\": ").append(quote(record.phase.name()));
+			json.append(", \"name\": ").append(record.name == null ? "null" : quote(record.name));
+			json.append(", \"thread\": ").append(quote(record.threadName));
+			json.append(", \"startUs\": ").append(record.startNanos / 1000);
+			json.append(", \"durationUs\": ").append(record.durationNanos / 1000).append("}");
+		}
+		json.append("\n  ],\n  \"dependencies\": {");
+
+		boolean first = true;
+		for (Entry<String, String[]> entry : getDependencies().entrySet()) {
+			json.append(first ? "\n" : ",\n").append("    ").append(quote(entry.getKey())).append(": ");
+			appendArray(json, entry.getValue());
+			first = false;
+		}
+
+		json.append("\n  },\n  \"criticalPath\": {\"durationUs\": ").append(getCriticalPathDurationNanos() / 1000).append(", \"modules\": ");
+		appendArray(json, getCriticalPath());
+		json.append("}\n}\n");
+		return json.toString();
+	}
+
+	/**
+	 * @return The recorded timeline in the Chrome trace event format.
+	 */
+	public final String toChromeTrace() {
+		StringBuilder json = new StringBuilder("{\"displayTimeUnit\": \"ms\", \"traceEvents\": [");
+		HashMap<Long, String> threads = new LinkedHashMap<>();
+		Record[] records = getRecords();
+		for (int i = 0; i < records.length; i++) {
+			Record record = records[i];
+			threads.put(record.threadId, record.threadName);
+
+			json.append(i == 0 ? "\n" : ",\n");
+			json.append("  {\"name\": ").append(quote(record.name == null ? record.phase.name() : record.name + " " + record.phase.name()));
+			json.append(", \"cat\": ").append(quote(record.phase.name()));
+			json.append(", \"ph\": \"X\", \"pid\": 1, \"tid\": ").append(record.threadId);
+			json.append(", \"ts\": ").append(record.startNanos / 1000);
+			json.append(", \"dur\": ").append(record.durationNanos / 1000).append("}");
+		}
+
+		for (Entry<Long, String> thread : threads.entrySet()) {
+			json.append(",\n  {\"name\": \"thread_name\", \"ph\": \"M\", \"pid\": 1, \"tid\": ").append(thread.getKey());
+			json.append(", \"args\": {\"name\": ").append(quote(thread.getValue())).append("}}");
+		}
+
+		json.append("\n]}\n");
+		return json.toString();
+	}
+
+	private Record[] getRecords() {
+		synchronized (records) {
+			return records.toArray(new Record[records.size()]);
+		}
+	}
+
+	private LinkedHashMap<String, String[]> getDependencies() {
+		synchronized (dependencies) {
+			return new LinkedHashMap<>(dependencies);
+		}
+	}
+
+	private static void appendArray(StringBuilder json, String[] values) {
+		json.append("[");
+		for (int i = 0; i < values.length; i++) {
+			json.append(i == 0 ? "" : ", ").append(quote(values[i]));
+		}
+		json.append("]");
+	}
+
+	private static String quote(String value) {
+		StringBuilder quoted = new StringBuilder("\"");
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"':
+				case '\\':
+					quoted.append('\\').append(c);
+					break;
+
+				case '\n':
+					quoted.append("\\n");
+					break;
+
+				default:
+					if (c < 0x20)
+						quoted.append(String.format("\\u%04x", (int) c));
+					else
+						quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+}
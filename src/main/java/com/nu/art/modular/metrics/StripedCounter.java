@@ -0,0 +1,94 @@
+/*
+ * The module-manager project, is THE infrastructure that all my frameworks
+ *  are based on, it allows encapsulation of logic where needed, and allow
+ *  modules to converse without other design patterns limitations.
+ *
+ * Copyright (C) 2018  Adam van der Kruk aka TacB0sS
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nu.art.modular.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter which spreads the updates of concurrent threads over multiple cells, each on its own cache line, so counting from many threads does
+ * not contend on a single memory location.
+ * <br>
+ * The sum is not an atomic snapshot while the counter is being updated.
+ */
+public final class StripedCounter {
+
+	/**
+	 * The number of longs between two cells, so each cell resides in its own 64 bytes cache line.
+	 */
+	private static final int CellPadding = 8;
+
+	private final AtomicLongArray cells;
+
+	private final int mask;
+
+	public StripedCounter() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param stripes The number of cells to spread the updates over, rounded up to a power of two.
+	 */
+	public StripedCounter(int stripes) {
+		int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+		mask = size - 1;
+		cells = new AtomicLongArray(size * CellPadding);
+	}
+
+	public final void increment() {
+		add(1);
+	}
+
+	public final void add(long delta) {
+		cells.getAndAdd(cellIndex(), delta);
+	}
+
+	public final long sum() {
+		long sum = 0;
+		for (int i = 0; i < cells.length(); i += CellPadding) {
+			sum += cells.get(i);
+		}
+		return sum;
+	}
+
+	public final void reset() {
+		for (int i = 0; i < cells.length(); i += CellPadding) {
+			cells.set(i, 0);
+		}
+	}
+
+	private int cellIndex() {
+		return (threadStripe() & mask) * CellPadding;
+	}
+
+	/**
+	 * @return A well spread hash of the current thread, to select the stripe the thread updates.
+	 */
+	static int threadStripe() {
+		long threadId = Thread.currentThread().getId();
+		int hash = (int) (threadId ^ (threadId >>> 32)) * 0x9E3779B9;
+		return hash >>> 16;
+	}
+
+	@Override
+	public String toString() {
+		return Long.toString(sum());
+	}
+}
@@ -1,21 +1,69 @@
 package com.nu.art.modular.tests;
 
 import com.nu.art.belog.Logger;
+import com.nu.art.core.exceptions.runtime.BadImplementationException;
 import com.nu.art.core.generics.Processor;
+import com.nu.art.modular.core.ModuleExecutors;
+import com.nu.art.modular.metrics.LatencyHistogram;
+import com.nu.art.modular.metrics.StripedCounter;
 
 import java.util.ArrayList;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Locale;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 public abstract class ComponentBaseTest
 	extends Logger {
 
+	/**
+	 * Runs the tests of all the async scenarios, on virtual threads where supported.
+	 */
+	private static final ExecutorService TestExecutor = ModuleExecutors.newTaskExecutor("test");
+
+	private volatile TestClock clock = new RealClock();
+
+	/**
+	 * @param clock The clock the test items time out by and complete their delayed results by, use a {@link VirtualClock} to run timeouts and
+	 *              delays without waiting for them, each test item runs on its own {@link TestClock#fork()} of it.
+	 */
+	public final void setClock(TestClock clock) {
+		this.clock = clock;
+	}
+
+	public final TestClock getClock() {
+		return clock;
+	}
+
+	/**
+	 * Runs the task on the shared test executor, through {@link #runTestTask(Runnable)}.
+	 */
+	private void executeTestTask(final Runnable task) {
+		TestExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				runTestTask(task);
+			}
+		});
+	}
+
+	/**
+	 * Runs a task the harness executes on another thread than the test's, override to carry the state of the test into that thread.
+	 */
+	protected void runTestTask(Runnable task) {
+		task.run();
+	}
+
 	@SuppressWarnings("unchecked")
 	public abstract class BaseTest<T extends BaseTest> {
 
 		protected String name;
 		protected String description;
-		protected Throwable t;
+		protected volatile Throwable t;
 
 		public String getName() {
 			return name;
@@ -38,6 +86,11 @@ public abstract class ComponentBaseTest
 		abstract void execute();
 
 		abstract boolean validate();
+
+		/**
+		 * Makes the test items of this test record their latencies into the given load test.
+		 */
+		abstract void recordLatencies(LoadTest loadTest);
 	}
 
 	public class Scenario
@@ -45,6 +98,8 @@ public abstract class ComponentBaseTest
 
 		private ArrayList<BaseTest> tests = new ArrayList<>();
 
+		private volatile boolean failed;
+
 		public Scenario addTest(BaseTest test) {
 			if (test instanceof TestItem)
 				((TestItem) test).setTimeout(-1);
@@ -52,17 +107,31 @@ public abstract class ComponentBaseTest
 			return this;
 		}
 
+		/**
+		 * Runs and validates the tests one after the other, the scenario fails with the error of the first test which fails its validation.
+		 */
 		@Override
 		public final void execute() {
 			for (BaseTest test : tests) {
 				test.execute();
-				test.validate();
+				if (test.validate() || failed)
+					continue;
+
+				failed = true;
+				t = test.getException() != null ? test.getException() : new RuntimeException("Test failed its validation: " + test.getName());
 			}
 		}
 
 		@Override
 		boolean validate() {
-			return true;
+			return !failed;
+		}
+
+		@Override
+		void recordLatencies(LoadTest loadTest) {
+			for (BaseTest test : tests) {
+				test.recordLatencies(loadTest);
+			}
 		}
 	}
 
@@ -76,31 +145,33 @@ public abstract class ComponentBaseTest
 			return this;
 		}
 
+		/**
+		 * Runs all the tests concurrently on the shared test executor, and validates them as soon as the last of them is done.
+		 */
 		public void execute() {
-			final AtomicInteger counter = new AtomicInteger();
+			final CountDownLatch completed = new CountDownLatch(tests.size());
 			for (final BaseTest test : tests) {
-				counter.incrementAndGet();
-				new Thread(new Runnable() {
+				executeTestTask(new Runnable() {
 					@Override
 					public void run() {
-						test.execute();
-						counter.decrementAndGet();
-						synchronized (counter) {
+						try {
+							test.execute();
+						} catch (Throwable t) {
+							if (test.t == null)
+								test.t = t;
+						} finally {
 							logDebug("Test is finished: " + test.name);
-							counter.notify();
+							completed.countDown();
 						}
 					}
-				}, "test--" + test.name).start();
+				});
 			}
 
-			while (counter.get() > 0) {
-				try {
-					synchronized (counter) {
-						counter.wait();
-					}
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
+			try {
+				completed.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new AsyncTestException();
 			}
 
 			validate();
@@ -128,17 +199,23 @@ public abstract class ComponentBaseTest
 			throw new AsyncTestException();
 		}
 
-		@SuppressWarnings( {
-			                   "unchecked",
-			                   "SuspiciousToArrayCall"
-		                   })
+		@Override
+		void recordLatencies(LoadTest loadTest) {
+			for (BaseTest test : tests) {
+				test.recordLatencies(loadTest);
+			}
+		}
+
+		/**
+		 * @return The tests which failed their validation, test items and nested scenarios alike.
+		 */
 		private BaseTest[] getFailedTests() {
 			ArrayList<BaseTest> failedTests = new ArrayList<>();
 			for (final BaseTest test : tests) {
 				if (!test.validate())
 					failedTests.add(test);
 			}
-			return failedTests.toArray(new TestItem[0]);
+			return failedTests.toArray(new BaseTest[0]);
 		}
 	}
 
@@ -151,10 +228,14 @@ public abstract class ComponentBaseTest
 		extends BaseTest<TestItem<T>> {
 
 		private final AtomicReference<T> ref = new AtomicReference<>();
+		private final CountDownLatch completed = new CountDownLatch(1);
 		private Processor<TestItem<T>> processor;
 		private TestValidator<T> validator;
 		private T expectedValue;
 		private int timeout = 10000;
+		private LatencyHistogram latency;
+		private volatile long startedNanos;
+		private volatile TestClock itemClock;
 
 		public TestItem() { }
 
@@ -183,42 +264,51 @@ public abstract class ComponentBaseTest
 			return this;
 		}
 
-		private synchronized void _notify() {
-			this.notify();
-		}
-
-		public final synchronized void _set(T value) {
+		public final void _set(T value) {
 			logDebug("Setting result: " + value);
 
 			ref.set(value);
-			_notify();
+			onResolved();
 		}
 
-		private synchronized void _wait(int timeout) {
-			logInfo("Waiting: " + timeout + "ms");
-
-			try {
-				this.wait(timeout);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
+		/**
+		 * Sets the result once the given delay has passed on the test clock.
+		 */
+		public final void _set(final T value, long delayMs) {
+			getClock().schedule(new Runnable() {
+				@Override
+				public void run() {
+					_set(value);
+				}
+			}, delayMs);
 		}
 
-		private synchronized void _wait() {
-			logInfo("Waiting...");
+		/**
+		 * Waits on the test clock until a result or an error is set, a result set before the wait started completes the wait immediately.
+		 */
+		private void _wait(int timeout) {
+			logInfo("Waiting: " + timeout + "ms");
 
 			try {
-				this.wait();
+				if (!getClock().await(completed, timeout) && t == null)
+					t = new RuntimeException("Did not receive result within: " + timeout + "ms");
 			} catch (InterruptedException e) {
-				e.printStackTrace();
+				Thread.currentThread().interrupt();
 			}
 		}
 
-		public final synchronized void _set(Throwable t) {
+		public final void _set(Throwable t) {
 			logError("Setting error: ", t);
 
 			this.t = t;
-			_notify();
+			onResolved();
+		}
+
+		private void onResolved() {
+			if (latency != null && completed.getCount() > 0)
+				latency.record(System.nanoTime() - startedNanos);
+
+			completed.countDown();
 		}
 
 		final boolean validate() {
@@ -232,19 +322,201 @@ public abstract class ComponentBaseTest
 			return validator.validate(result, this.t);
 		}
 
+		/**
+		 * @return The clock of this test item, forked from the test clock once the item is executed.
+		 */
+		public final TestClock getClock() {
+			TestClock itemClock = this.itemClock;
+			return itemClock != null ? itemClock : clock;
+		}
+
 		final void execute() {
 			logInfo("Running  test: " + description);
+			itemClock = clock.fork();
+			startedNanos = System.nanoTime();
 			processor.process(this);
 			if (timeout > 0)
 				_wait(timeout);
 		}
 
+		@Override
+		void recordLatencies(LoadTest loadTest) {
+			latency = loadTest.getItemLatency(name);
+		}
+
 		public TestItem<T> expectedValue(T expectedValue) {
 			this.expectedValue = expectedValue;
 			return this;
 		}
 	}
 
+	/**
+	 * Creates a new instance of the scenario for each iteration of a load test, as scenarios and their test items can only run once.
+	 */
+	public interface ScenarioFactory {
+
+		BaseTest createScenario(int iteration);
+	}
+
+	/**
+	 * Runs the scenarios of a {@link ScenarioFactory} over and over, with a bounded number of concurrent iterations and optionally at a target rate,
+	 * and measures the latency of each scenario and of each of its test items, from their {@link TestItem#execute()} to their {@link TestItem#_set}.
+	 * <br>
+	 * When a rate is set the scenario latency is measured from the time it was scheduled to start, so a stalled run is reflected in the results
+	 * instead of silently lowering the rate.
+	 */
+	public class LoadTest {
+
+		private final String name;
+		private ScenarioFactory factory;
+		private int iterations = 1000;
+		private int concurrency = 1;
+		private double rate;
+
+		private final LatencyHistogram scenarioLatency = new LatencyHistogram();
+		private final ConcurrentHashMap<String, LatencyHistogram> itemLatencies = new ConcurrentHashMap<>();
+		private final StripedCounter failures = new StripedCounter();
+		private long durationNanos;
+
+		private LoadTest(String name) {
+			this.name = name;
+		}
+
+		public LoadTest setScenarioFactory(ScenarioFactory factory) {
+			this.factory = factory;
+			return this;
+		}
+
+		public LoadTest setIterations(int iterations) {
+			this.iterations = iterations;
+			return this;
+		}
+
+		/**
+		 * @param concurrency The maximum number of scenarios running at the same time.
+		 */
+		public LoadTest setConcurrency(int concurrency) {
+			this.concurrency = concurrency;
+			return this;
+		}
+
+		/**
+		 * @param rate The number of scenarios to start per second, or 0 to start each as soon as the concurrency allows it.
+		 */
+		public LoadTest setRate(double rate) {
+			this.rate = rate;
+			return this;
+		}
+
+		/**
+		 * Runs all the iterations, and blocks until the last of them is done.
+		 *
+		 * @return This load test, holding the results.
+		 */
+		public final LoadTest execute() {
+			if (factory == null)
+				throw new BadImplementationException("Load test " + name + " MUST have a scenario factory");
+
+			if (concurrency < 1)
+				throw new BadImplementationException("Load test " + name + " concurrency MUST be positive, found: " + concurrency);
+
+			final Semaphore permits = new Semaphore(concurrency);
+			final CountDownLatch completed = new CountDownLatch(iterations);
+			long intervalNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+			long startedNanos = System.nanoTime();
+
+			try {
+				for (int i = 0; i < iterations; i++) {
+					final long scheduledNanos = startedNanos + i * intervalNanos;
+					long delayNanos = scheduledNanos - System.nanoTime();
+					if (delayNanos > 0)
+						TimeUnit.NANOSECONDS.sleep(delayNanos);
+
+					permits.acquire();
+					final BaseTest scenario = factory.createScenario(i);
+					scenario.recordLatencies(this);
+					executeTestTask(new Runnable() {
+						@Override
+						public void run() {
+							long runStartedNanos = rate > 0 ? scheduledNanos : System.nanoTime();
+							try {
+								scenario.execute();
+								if (!scenario.validate())
+									failures.increment();
+							} catch (Throwable t) {
+								failures.increment();
+							} finally {
+								scenarioLatency.record(System.nanoTime() - runStartedNanos);
+								permits.release();
+								completed.countDown();
+							}
+						}
+					});
+				}
+
+				completed.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new AsyncTestException();
+			}
+
+			durationNanos = System.nanoTime() - startedNanos;
+			logInfo(toString());
+			return this;
+		}
+
+		final LatencyHistogram getItemLatency(String name) {
+			if (name == null)
+				name = "unnamed";
+
+			LatencyHistogram histogram = itemLatencies.get(name);
+			if (histogram != null)
+				return histogram;
+
+			histogram = new LatencyHistogram();
+			LatencyHistogram existing = itemLatencies.putIfAbsent(name, histogram);
+			return existing != null ? existing : histogram;
+		}
+
+		public final long getFailuresCount() {
+			return failures.sum();
+		}
+
+		public final long getDurationNanos() {
+			return durationNanos;
+		}
+
+		/**
+		 * @return The number of scenarios completed per second.
+		 */
+		public final double getThroughput() {
+			return durationNanos == 0 ? 0 : iterations * (double) TimeUnit.SECONDS.toNanos(1) / durationNanos;
+		}
+
+		public final LatencyHistogram getScenarioLatency() {
+			return scenarioLatency;
+		}
+
+		/**
+		 * @return The latencies of the test items, by their name.
+		 */
+		public final ConcurrentHashMap<String, LatencyHistogram> getItemLatencies() {
+			return itemLatencies;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder description = new StringBuilder("Load test " + name + ":");
+			description.append(String.format(Locale.ENGLISH, " %d iterations in %.1fms, %.1f/s, concurrency: %d, failures: %d", iterations,
+			                                 durationNanos / 1000000d, getThroughput(), concurrency, getFailuresCount()));
+			description.append("\n  scenario: ").append(scenarioLatency);
+			for (Entry<String, LatencyHistogram> entry : itemLatencies.entrySet()) {
+				description.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue());
+			}
+			return description.toString();
+		}
+	}
+
 	protected final TestItem<Boolean> createTest(String name, String description) {
 		return new TestItem<Boolean>()
 			.setName(name)
@@ -253,6 +525,10 @@ public abstract class ComponentBaseTest
 			.setValidator(true);
 	}
 
+	protected final LoadTest createLoadTest(String name, ScenarioFactory factory) {
+		return new LoadTest(name).setScenarioFactory(factory);
+	}
+
 	protected final AsyncScenario createAsyncScenario() {
 		return createAsyncScenario(Thread.currentThread().getStackTrace()[2].getMethodName());
 	}
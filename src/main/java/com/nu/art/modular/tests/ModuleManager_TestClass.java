@@ -1,20 +1,47 @@
 package com.nu.art.modular.tests;
 
 import com.nu.art.belog.BeLogged;
+import com.nu.art.core.exceptions.runtime.BadImplementationException;
 import com.nu.art.modular.core.Module;
 import com.nu.art.modular.core.ModuleManager;
 import com.nu.art.modular.core.ModuleManagerBuilder;
 import com.nu.art.modular.core.ModulesPack;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
 import static com.nu.art.belog.loggers.JavaLogger.Config_FastJavaLogger;
 
+/**
+ * Each test class gets its own module manager, built by the {@link #initWithModules(Class[])} or {@link #initWithPacks(Class[])} call in its
+ * {@link org.junit.BeforeClass}, so test classes can run in parallel within the same JVM.
+ * <br>
+ * Use {@link #getModuleManager()} or {@link #getModule(Class)} to reach the manager of the test class, the tasks the harness runs on other threads,
+ * like the tests of an async scenario, reach the manager of the test class which started them.
+ */
 public abstract class ModuleManager_TestClass
 	extends ComponentBaseTest {
 
-	public static ModuleManager moduleManager;
+	/**
+	 * Test class to the build of its module manager, each test class builds its manager once, without blocking the builds of other test classes.
+	 */
+	private static final ConcurrentHashMap<Class<?>, FutureTask<ModuleManager>> moduleManagers = new ConcurrentHashMap<>();
+
+	/**
+	 * The module manager of the test running a task of the harness on the current thread, see {@link #runTestTask(Runnable)}.
+	 */
+	private static final ThreadLocal<ModuleManager> TaskModuleManager = new ThreadLocal<>();
+
+	private final ModuleManager testModuleManager;
 
 	public ModuleManager_TestClass() {
-		moduleManager.getInjector().injectToInstance(this);
+		testModuleManager = getModuleManager(getClass());
+		if (testModuleManager == null)
+			throw new BadImplementationException("No module manager for test class: " + getClass().getName() + ", MUST call initWithModules or initWithPacks in a @BeforeClass");
+
+		testModuleManager.getInjector().inject(this);
 	}
 
 	protected void printTestName() {
@@ -23,25 +50,147 @@ public abstract class ModuleManager_TestClass
 		System.out.println("\n------------ " + testName + " --------------");
 	}
 
+	/**
+	 * Builds the module manager of the calling test class, with the given modules.
+	 */
 	@SuppressWarnings("unchecked")
 	public static void initWithModules(Class<? extends Module>... moduleTypes) {
-		if (moduleManager != null)
-			return;
-
-		BeLogged.getInstance().setConfig(Config_FastJavaLogger);
-		moduleManager = new ModuleManagerBuilder().addModules(moduleTypes).build();
+		init(resolveCallingTestClass(), new ModuleManagerBuilder().addModules(moduleTypes));
 	}
 
+	/**
+	 * Builds the module manager of the calling test class, with the given packs.
+	 */
 	@SuppressWarnings("unchecked")
 	public static void initWithPacks(Class<? extends ModulesPack>... packs) {
-		if (moduleManager != null)
-			return;
+		init(resolveCallingTestClass(), new ModuleManagerBuilder().addModulePacks(packs));
+	}
+
+	private static void init(Class<?> testClass, final ModuleManagerBuilder builder) {
+		FutureTask<ModuleManager> build = new FutureTask<>(new Callable<ModuleManager>() {
+			@Override
+			public ModuleManager call() {
+				BeLogged.getInstance().setConfig(Config_FastJavaLogger);
+				return builder.build();
+			}
+		});
+
+		FutureTask<ModuleManager> existingBuild = moduleManagers.putIfAbsent(testClass, build);
+		if (existingBuild != null)
+			build = existingBuild;
+		else
+			build.run();
+
+		try {
+			awaitBuild(build);
+		} catch (RuntimeException e) {
+			// lets the next call retry the build
+			moduleManagers.remove(testClass, build);
+			throw e;
+		}
+	}
+
+	private static ModuleManager awaitBuild(FutureTask<ModuleManager> build) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return build.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+
+			throw new BadImplementationException("Error building the module manager", e.getCause());
+		} finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	private static Class<?> resolveCallingTestClass() {
+		for (StackTraceElement stackTraceElement : Thread.currentThread().getStackTrace()) {
+			String className = stackTraceElement.getClassName();
+			if (className.equals(Thread.class.getName()) || className.equals(ModuleManager_TestClass.class.getName()))
+				continue;
+
+			try {
+				return Class.forName(className, false, ModuleManager_TestClass.class.getClassLoader());
+			} catch (ClassNotFoundException e) {
+				throw new BadImplementationException("Cannot resolve the test class: " + className, e);
+			}
+		}
+
+		throw new BadImplementationException("Cannot resolve the test class");
+	}
+
+	/**
+	 * @return The module manager built for the test class, or for the closest of its super classes, or null if none was built.
+	 */
+	private static ModuleManager getModuleManager(Class<?> testClass) {
+		for (Class<?> type = testClass; type != null; type = type.getSuperclass()) {
+			FutureTask<ModuleManager> build = moduleManagers.get(type);
+			if (build != null)
+				return awaitBuild(build);
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return The module manager of the test running the current harness task, otherwise of the closest calling test class on the stack.
+	 */
+	private static ModuleManager resolveCallingModuleManager() {
+		ModuleManager taskModuleManager = TaskModuleManager.get();
+		if (taskModuleManager != null)
+			return taskModuleManager;
+
+		for (StackTraceElement stackTraceElement : Thread.currentThread().getStackTrace()) {
+			String className = stackTraceElement.getClassName();
+			if (className.equals(Thread.class.getName()) || className.equals(ModuleManager_TestClass.class.getName()))
+				continue;
+
+			ModuleManager moduleManager;
+			try {
+				moduleManager = getModuleManager(Class.forName(className, false, ModuleManager_TestClass.class.getClassLoader()));
+			} catch (ClassNotFoundException e) {
+				continue;
+			}
+
+			if (moduleManager != null)
+				return moduleManager;
+		}
+
+		throw new BadImplementationException("No module manager for the calling test class, MUST call initWithModules or initWithPacks in a @BeforeClass");
+	}
+
+	public final ModuleManager getModuleManager() {
+		return testModuleManager;
+	}
 
-		BeLogged.getInstance().setConfig(Config_FastJavaLogger);
-		moduleManager = new ModuleManagerBuilder().addModulePacks(packs).build();
+	@Override
+	protected void runTestTask(Runnable task) {
+		ModuleManager previousModuleManager = TaskModuleManager.get();
+		TaskModuleManager.set(testModuleManager);
+		try {
+			super.runTestTask(task);
+		} finally {
+			if (previousModuleManager == null)
+				TaskModuleManager.remove();
+			else
+				TaskModuleManager.set(previousModuleManager);
+		}
 	}
 
+	/**
+	 * Static to remain compatible with test classes written before each test class had its own manager.
+	 *
+	 * @return The module of the manager of the calling test class.
+	 */
 	public static <ModuleType extends Module> ModuleType getModule(Class<ModuleType> moduleType) {
-		return moduleManager.getModule(moduleType);
+		return resolveCallingModuleManager().getModule(moduleType);
 	}
 }
@@ -0,0 +1,37 @@
+package com.nu.art.modular.tests;
+
+import com.nu.art.modular.core.ModuleExecutors;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The wall clock, timeouts and delays take their actual time.
+ */
+public final class RealClock
+	implements TestClock {
+
+	private static final ScheduledExecutorService Scheduler = ModuleExecutors.newScheduler("test-clock");
+
+	@Override
+	public long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	@Override
+	public void schedule(Runnable task, long delayMs) {
+		Scheduler.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public boolean await(CountDownLatch latch, long timeoutMs)
+		throws InterruptedException {
+		return latch.await(timeoutMs, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public TestClock fork() {
+		return this;
+	}
+}
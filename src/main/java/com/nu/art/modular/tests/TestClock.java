@@ -0,0 +1,27 @@
+package com.nu.art.modular.tests;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * The time source of the component tests, used for the test items timeouts and for completing test items after a delay.
+ */
+public interface TestClock {
+
+	long currentTimeMillis();
+
+	/**
+	 * Runs the task once the given delay has passed on this clock.
+	 */
+	void schedule(Runnable task, long delayMs);
+
+	/**
+	 * @return Whether the latch has reached zero before the timeout has passed on this clock.
+	 */
+	boolean await(CountDownLatch latch, long timeoutMs)
+		throws InterruptedException;
+
+	/**
+	 * @return The clock of a single test item, starting at the current time of this clock, items running concurrently MUST NOT move each other's time.
+	 */
+	TestClock fork();
+}
@@ -0,0 +1,151 @@
+package com.nu.art.modular.tests;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A clock whose time only moves when it is awaited or advanced, so timeouts and delayed completions take no wall clock time.
+ * <br>
+ * Awaiting a latch runs the scheduled tasks in the order of their due time, until the latch is released or until no task is due before the
+ * timeout, in which case the time jumps straight to the end of the timeout. Work completing the latch from other threads, rather than from tasks
+ * scheduled on this clock, is given {@link #setRealTimeGrace(long)} of actual time before the timeout is declared.
+ * <br>
+ * The time of a clock is shared by everything awaiting it, so test items running concurrently each run on their own {@link #fork()}.
+ */
+public final class VirtualClock
+	implements TestClock {
+
+	private static final class ScheduledTask
+		implements Comparable<ScheduledTask> {
+
+		private final long dueTime;
+
+		private final long sequence;
+
+		private final Runnable task;
+
+		private ScheduledTask(long dueTime, long sequence, Runnable task) {
+			this.dueTime = dueTime;
+			this.sequence = sequence;
+			this.task = task;
+		}
+
+		@Override
+		public int compareTo(ScheduledTask other) {
+			if (dueTime != other.dueTime)
+				return dueTime < other.dueTime ? -1 : 1;
+
+			return sequence < other.sequence ? -1 : sequence == other.sequence ? 0 : 1;
+		}
+	}
+
+	private final PriorityQueue<ScheduledTask> tasks = new PriorityQueue<>();
+
+	private long now;
+
+	private long sequence;
+
+	private long realTimeGraceMs;
+
+	public VirtualClock() {
+		this(0);
+	}
+
+	public VirtualClock(long startTimeMs) {
+		now = startTimeMs;
+	}
+
+	/**
+	 * @param realTimeGraceMs The actual time to wait for a latch, before timing out on it while no task is due.
+	 */
+	public VirtualClock setRealTimeGrace(long realTimeGraceMs) {
+		this.realTimeGraceMs = realTimeGraceMs;
+		return this;
+	}
+
+	/**
+	 * @return An independent virtual clock starting at the current time of this clock, with the same real time grace.
+	 */
+	@Override
+	public synchronized VirtualClock fork() {
+		return new VirtualClock(now).setRealTimeGrace(realTimeGraceMs);
+	}
+
+	@Override
+	public synchronized long currentTimeMillis() {
+		return now;
+	}
+
+	@Override
+	public synchronized void schedule(Runnable task, long delayMs) {
+		tasks.add(new ScheduledTask(now + Math.max(0, delayMs), sequence++, task));
+	}
+
+	/**
+	 * Moves the time forward, running the tasks which are due on the way.
+	 */
+	public void advance(long durationMs) {
+		long deadline;
+		synchronized (this) {
+			deadline = now + durationMs;
+		}
+
+		while (runNextTask(deadline)) {}
+
+		synchronized (this) {
+			now = Math.max(now, deadline);
+		}
+	}
+
+	@Override
+	public boolean await(CountDownLatch latch, long timeoutMs)
+		throws InterruptedException {
+		long deadline;
+		synchronized (this) {
+			deadline = now + timeoutMs;
+		}
+
+		while (latch.getCount() > 0) {
+			if (runNextTask(deadline))
+				continue;
+
+			if (realTimeGraceMs > 0 && latch.await(realTimeGraceMs, TimeUnit.MILLISECONDS))
+				return true;
+
+			// another thread may have scheduled a task during the grace period
+			if (realTimeGraceMs > 0 && hasTaskDue(deadline))
+				continue;
+
+			synchronized (this) {
+				now = Math.max(now, deadline);
+			}
+			return latch.getCount() == 0;
+		}
+
+		return true;
+	}
+
+	private synchronized boolean hasTaskDue(long deadline) {
+		ScheduledTask next = tasks.peek();
+		return next != null && next.dueTime <= deadline;
+	}
+
+	/**
+	 * Runs the next task if it is due before the deadline, outside of the clock lock so it may schedule further tasks.
+	 */
+	private boolean runNextTask(long deadline) {
+		ScheduledTask next;
+		synchronized (this) {
+			next = tasks.peek();
+			if (next == null || next.dueTime > deadline)
+				return false;
+
+			tasks.poll();
+			now = Math.max(now, next.dueTime);
+		}
+
+		next.task.run();
+		return true;
+	}
+}
@@ -0,0 +1,210 @@
+package com.nu.art.modular;
+
+import com.nu.art.core.generics.Processor;
+import com.nu.art.modular.core.Module;
+import com.nu.art.modular.core.ModuleManager;
+import com.nu.art.modular.core.ModuleManagerBuilder;
+import com.nu.art.modular.exceptions.EventDispatchException;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class Test_BatchedEvents {
+
+	public interface ValueListener {
+
+		void onValue(int value);
+	}
+
+	public static class ValueListenerModule
+		extends Module
+		implements ValueListener {
+
+		final List<Integer> values = new ArrayList<>();
+
+		@Override
+		protected void init() {}
+
+		@Override
+		public void onValue(int value) {
+			synchronized (values) {
+				values.add(value);
+			}
+		}
+
+		List<Integer> getValues() {
+			synchronized (values) {
+				return new ArrayList<>(values);
+			}
+		}
+	}
+
+	public static class FailingListenerModule
+		extends Module
+		implements ValueListener {
+
+		@Override
+		protected void init() {}
+
+		@Override
+		public void onValue(int value) {
+			throw new IllegalStateException("failing listener: " + value);
+		}
+	}
+
+	/**
+	 * Dispatches a batched event when disposed, after the event queue was shut down, while the listener it depends on is still alive.
+	 */
+	public static class DisposeDispatchingModule
+		extends Module {
+
+		ValueListenerModule listenerModule;
+
+		@Override
+		protected void init() {}
+
+		@Override
+		protected void dispose() {
+			dispatchModuleEventBatched("value", null, ValueListener.class, new Processor<ValueListener>() {
+				@Override
+				public void process(ValueListener listener) {
+					listener.onValue(2);
+				}
+			});
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ModuleManager createManager(Class<? extends Module>... moduleTypes) {
+		return new ModuleManagerBuilder().addModules(moduleTypes).build();
+	}
+
+	private static void dispatch(ModuleManager manager, Object coalescingKey, final int value) {
+		manager.dispatchModuleEventBatched(null, "value", coalescingKey, ValueListener.class, new Processor<ValueListener>() {
+			@Override
+			public void process(ValueListener listener) {
+				listener.onValue(value);
+			}
+		});
+	}
+
+	private static void awaitValues(ValueListenerModule module, int count)
+		throws InterruptedException {
+		for (int i = 0; i < 200 && module.getValues().size() < count; i++) {
+			Thread.sleep(10);
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_CoalescingKeepsOrder() {
+		ModuleManager manager = createManager(ValueListenerModule.class);
+		ValueListenerModule module = manager.getModule(ValueListenerModule.class);
+		manager.configureEventBatching(ValueListener.class, 60000, 100);
+
+		dispatch(manager, "a", 1);
+		dispatch(manager, "b", 2);
+		dispatch(manager, "a", 3);
+		dispatch(manager, null, 4);
+		dispatch(manager, null, 5);
+		assertTrue(module.getValues().isEmpty());
+
+		manager.flushModuleEvents();
+		assertEquals(Arrays.asList(3, 2, 4, 5), module.getValues());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_FlushOnWindow()
+		throws InterruptedException {
+		ModuleManager manager = createManager(ValueListenerModule.class);
+		ValueListenerModule module = manager.getModule(ValueListenerModule.class);
+		manager.configureEventBatching(ValueListener.class, 20, 100);
+
+		dispatch(manager, null, 1);
+		dispatch(manager, null, 2);
+		awaitValues(module, 2);
+
+		assertEquals(Arrays.asList(1, 2), module.getValues());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_FlushOnMaxSize()
+		throws InterruptedException {
+		ModuleManager manager = createManager(ValueListenerModule.class);
+		ValueListenerModule module = manager.getModule(ValueListenerModule.class);
+		manager.configureEventBatching(ValueListener.class, 60000, 3);
+
+		dispatch(manager, null, 1);
+		dispatch(manager, null, 2);
+		assertTrue(module.getValues().isEmpty());
+
+		dispatch(manager, null, 3);
+		awaitValues(module, 3);
+		assertEquals(Arrays.asList(1, 2, 3), module.getValues());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_FlushOnMaxSizeCancelsWindowFlush()
+		throws InterruptedException {
+		ModuleManager manager = createManager(ValueListenerModule.class);
+		ValueListenerModule module = manager.getModule(ValueListenerModule.class);
+		manager.configureEventBatching(ValueListener.class, 500, 3);
+
+		dispatch(manager, null, 1);
+		dispatch(manager, null, 2);
+		dispatch(manager, null, 3);
+		awaitValues(module, 3);
+		assertEquals(Arrays.asList(1, 2, 3), module.getValues());
+
+		// the window of the first event ends before the window of this one, and must not deliver it
+		Thread.sleep(300);
+		dispatch(manager, null, 4);
+		Thread.sleep(300);
+		assertEquals(Arrays.asList(1, 2, 3), module.getValues());
+
+		awaitValues(module, 4);
+		assertEquals(Arrays.asList(1, 2, 3, 4), module.getValues());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_EventsAfterShutdownDeliveredOnCallingThread() {
+		ModuleManager manager = createManager(ValueListenerModule.class, DisposeDispatchingModule.class);
+		ValueListenerModule module = manager.getModule(ValueListenerModule.class);
+		manager.configureEventBatching(ValueListener.class, 60000, 100);
+
+		dispatch(manager, null, 1);
+		assertTrue(manager.dispose(1000));
+		assertEquals(Arrays.asList(1, 2), module.getValues());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_FailingListenerDoesNotStopTheBatch() {
+		ModuleManager manager = createManager(FailingListenerModule.class, ValueListenerModule.class);
+		ValueListenerModule module = manager.getModule(ValueListenerModule.class);
+		manager.configureEventBatching(ValueListener.class, 60000, 100);
+
+		dispatch(manager, null, 1);
+		dispatch(manager, null, 2);
+		dispatch(manager, null, 3);
+		try {
+			manager.flushModuleEvents();
+			fail("Expected the failing listener errors");
+		} catch (EventDispatchException e) {
+			assertEquals(2, e.getSuppressed().length);
+		}
+
+		assertEquals(Arrays.asList(1, 2, 3), module.getValues());
+	}
+}
@@ -0,0 +1,241 @@
+package com.nu.art.modular;
+
+import com.nu.art.core.generics.Processor;
+import com.nu.art.modular.tests.ComponentBaseTest;
+import com.nu.art.modular.tests.VirtualClock;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class Test_ComponentBaseTest
+	extends ComponentBaseTest {
+
+	/**
+	 * @return A test item which only completes while another test item awaiting the same barrier runs at the same time.
+	 */
+	private TestItem<Boolean> createBarrierTest(String name, final CyclicBarrier barrier) {
+		return createTest(name, "completes with the other barrier test").setProcessor(new Processor<TestItem<Boolean>>() {
+			@Override
+			public void process(TestItem<Boolean> test) {
+				try {
+					barrier.await(5, TimeUnit.SECONDS);
+					test._set(true);
+				} catch (Exception e) {
+					test._set(e);
+				}
+			}
+		});
+	}
+
+	@Test
+	public void test_AsyncScenariosOverlap()
+		throws InterruptedException {
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		final AsyncScenario first = createAsyncScenario("first").addTest(createBarrierTest("first-test", barrier));
+		AsyncScenario second = createAsyncScenario("second").addTest(createBarrierTest("second-test", barrier));
+
+		final AtomicReference<Throwable> error = new AtomicReference<>();
+		Thread firstRunner = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					first.execute();
+				} catch (Throwable t) {
+					error.set(t);
+				}
+			}
+		});
+
+		firstRunner.start();
+		second.execute();
+		firstRunner.join(10000);
+
+		assertFalse(firstRunner.isAlive());
+		assertNull(error.get());
+	}
+
+	@Test
+	public void test_AsyncScenarioReportsFailuresWithoutHanging() {
+		final RuntimeException failure = new RuntimeException("failed on purpose");
+		TestItem<Boolean> failing = createTest("failing", "fails immediately").setProcessor(new Processor<TestItem<Boolean>>() {
+			@Override
+			public void process(TestItem<Boolean> test) {
+				test._set(failure);
+			}
+		});
+
+		TestItem<Boolean> timingOut = createTest("timing-out", "never completes").setTimeout(200).setProcessor(new Processor<TestItem<Boolean>>() {
+			@Override
+			public void process(TestItem<Boolean> test) {}
+		});
+
+		TestItem<Boolean> succeeding = createTest("succeeding", "completes after the others failed").setProcessor(new Processor<TestItem<Boolean>>() {
+			@Override
+			public void process(TestItem<Boolean> test) {
+				test._set(true, 300);
+			}
+		});
+
+		long started = System.nanoTime();
+		try {
+			createAsyncScenario().addTest(failing).addTest(timingOut).addTest(succeeding).execute();
+			fail("Expected the scenario to fail");
+		} catch (RuntimeException e) {
+			assertEquals("Error in tests", e.getMessage());
+		}
+
+		assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(5));
+		assertSame(failure, failing.getException());
+		assertTrue(String.valueOf(timingOut.getException()), timingOut.getException().getMessage().startsWith("Did not receive result within: 200ms"));
+		assertNull(succeeding.getException());
+	}
+
+	@Test
+	public void test_AsyncScenarioReportsFailingNestedScenario() {
+		final RuntimeException failure = new RuntimeException("nested failure");
+		TestItem<Boolean> failing = createTest("nested-failing", "fails immediately").setProcessor(new Processor<TestItem<Boolean>>() {
+			@Override
+			public void process(TestItem<Boolean> test) {
+				test._set(failure);
+			}
+		});
+
+		Scenario nested = createScenario("nested").addTest(failing);
+		try {
+			createAsyncScenario("outer").addTest(nested).execute();
+			fail("Expected the scenario to fail");
+		} catch (RuntimeException e) {
+			assertEquals("Error in tests", e.getMessage());
+		}
+
+		assertSame(failure, nested.getException());
+	}
+
+	/**
+	 * @return A scenario with a single test item which takes the given time, and completes with the given result.
+	 */
+	private Scenario createTimedScenario(final long durationMs, final boolean result, final AtomicInteger active, final AtomicInteger maxActive) {
+		TestItem<Boolean> test = createTest("timed", "takes " + durationMs + "ms").setProcessor(new Processor<TestItem<Boolean>>() {
+			@Override
+			public void process(TestItem<Boolean> test) {
+				int running = active.incrementAndGet();
+				for (int max = maxActive.get(); running > max && !maxActive.compareAndSet(max, running); max = maxActive.get()) {}
+
+				try {
+					Thread.sleep(durationMs);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+
+				active.decrementAndGet();
+				test._set(result);
+			}
+		});
+		return createScenario("timed-scenario").addTest(test);
+	}
+
+	@Test
+	public void test_LoadTestConcurrencyCapAndFailures() {
+		final AtomicInteger active = new AtomicInteger();
+		final AtomicInteger maxActive = new AtomicInteger();
+		LoadTest loadTest = createLoadTest("capped", new ScenarioFactory() {
+			@Override
+			public BaseTest createScenario(int iteration) {
+				// every third scenario receives an unexpected value
+				return createTimedScenario(10, iteration % 3 != 0, active, maxActive);
+			}
+		}).setIterations(30).setConcurrency(3).execute();
+
+		assertTrue("max concurrent scenarios: " + maxActive.get(), maxActive.get() <= 3);
+		assertTrue("max concurrent scenarios: " + maxActive.get(), maxActive.get() > 1);
+		assertEquals(10, loadTest.getFailuresCount());
+	}
+
+	@Test
+	public void test_LoadTestRatePacingAndLatencies() {
+		final AtomicInteger active = new AtomicInteger();
+		final AtomicInteger maxActive = new AtomicInteger();
+		LoadTest loadTest = createLoadTest("paced", new ScenarioFactory() {
+			@Override
+			public BaseTest createScenario(int iteration) {
+				return createTimedScenario(5, true, active, maxActive);
+			}
+		}).setIterations(10).setConcurrency(10).setRate(50).execute();
+
+		// 10 scenarios at 50 per second start over at least 9 intervals of 20ms
+		assertTrue("duration: " + loadTest.getDurationNanos(), loadTest.getDurationNanos() >= TimeUnit.MILLISECONDS.toNanos(180));
+		assertTrue("throughput: " + loadTest.getThroughput(), loadTest.getThroughput() <= 56);
+		assertEquals(0, loadTest.getFailuresCount());
+
+		assertEquals(10, loadTest.getScenarioLatency().getCount());
+		assertTrue(loadTest.getScenarioLatency().getValueAtPercentile(50) >= TimeUnit.MILLISECONDS.toNanos(5));
+		assertEquals(1, loadTest.getItemLatencies().size());
+		assertEquals(10, loadTest.getItemLatencies().get("timed").getCount());
+		assertTrue(loadTest.getItemLatencies().get("timed").getMax() >= TimeUnit.MILLISECONDS.toNanos(5));
+	}
+
+	@Test
+	public void test_ConcurrentItemsOnVirtualClock() {
+		setClock(new VirtualClock());
+
+		for (int run = 0; run < 20; run++) {
+			ArrayList<TestItem<Boolean>> timingOut = new ArrayList<>();
+			ArrayList<TestItem<Boolean>> delayed = new ArrayList<>();
+			final AtomicLong[] resolvedAt = new AtomicLong[4];
+			AsyncScenario scenario = createAsyncScenario("virtual-time-" + run);
+			for (int i = 0; i < 4; i++) {
+				TestItem<Boolean> test = createTest("timing-out-" + i, "never completes").setTimeout(60000).setProcessor(new Processor<TestItem<Boolean>>() {
+					@Override
+					public void process(TestItem<Boolean> test) {}
+				});
+				timingOut.add(test);
+				scenario.addTest(test);
+
+				final AtomicLong resolved = resolvedAt[i] = new AtomicLong(-1);
+				test = createTest("delayed-" + i, "completes after 30s").setTimeout(40000).setProcessor(new Processor<TestItem<Boolean>>() {
+					@Override
+					public void process(final TestItem<Boolean> test) {
+						test.getClock().schedule(new Runnable() {
+							@Override
+							public void run() {
+								resolved.set(test.getClock().currentTimeMillis());
+								test._set(true);
+							}
+						}, 30000);
+					}
+				});
+				delayed.add(test);
+				scenario.addTest(test);
+			}
+
+			long started = System.nanoTime();
+			try {
+				scenario.execute();
+				fail("Expected the timing out tests to fail the scenario");
+			} catch (RuntimeException e) {
+				assertEquals("Error in tests", e.getMessage());
+			}
+
+			// the timeouts of some items never move the time of the others
+			assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(5));
+			for (int i = 0; i < 4; i++) {
+				assertEquals(30000, resolvedAt[i].get());
+				assertNull(delayed.get(i).getException());
+				assertTrue(String.valueOf(timingOut.get(i).getException()), timingOut.get(i).getException().getMessage().startsWith("Did not receive result within"));
+			}
+		}
+	}
+}
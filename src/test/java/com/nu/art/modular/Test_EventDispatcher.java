@@ -0,0 +1,485 @@
+package com.nu.art.modular;
+
+import com.nu.art.core.generics.GenericParamExtractor;
+import com.nu.art.core.generics.Processor;
+import com.nu.art.modular.core.EventChannel;
+import com.nu.art.modular.core.EventDispatchHandle;
+import com.nu.art.modular.core.EventDispatcher;
+import com.nu.art.modular.exceptions.EventDispatchException;
+import com.nu.art.modular.interfaces.ConsumableProcessor;
+import com.nu.art.modular.interfaces.PrioritizedListener;
+import com.nu.art.modular.metrics.DispatchMetrics;
+import com.nu.art.modular.metrics.DispatchMetrics.EventMetrics;
+import com.nu.art.modular.metrics.LatencyHistogram;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class Test_EventDispatcher {
+
+	interface TestListener {
+
+		void onEvent();
+	}
+
+	interface OtherListener {
+
+		void onOtherEvent();
+	}
+
+	static class TestListenerImpl
+		implements TestListener {
+
+		final AtomicInteger counter = new AtomicInteger();
+
+		@Override
+		public void onEvent() {
+			counter.incrementAndGet();
+		}
+	}
+
+	static class OtherListenerImpl
+		implements OtherListener {
+
+		final AtomicInteger counter = new AtomicInteger();
+
+		@Override
+		public void onOtherEvent() {
+			counter.incrementAndGet();
+		}
+	}
+
+	static class PrioritizedTestListener
+		extends TestListenerImpl
+		implements PrioritizedListener {
+
+		final int priority;
+
+		final ArrayList<Integer> deliveries;
+
+		PrioritizedTestListener(int priority, ArrayList<Integer> deliveries) {
+			this.priority = priority;
+			this.deliveries = deliveries;
+		}
+
+		@Override
+		public int getListenerPriority() {
+			return priority;
+		}
+
+		@Override
+		public void onEvent() {
+			super.onEvent();
+			deliveries.add(priority);
+		}
+	}
+
+	private static final Processor<TestListener> TestProcessor = new Processor<TestListener>() {
+		@Override
+		public void process(TestListener listener) {
+			listener.onEvent();
+		}
+	};
+
+	private static final Processor<OtherListener> OtherProcessor = new Processor<OtherListener>() {
+		@Override
+		public void process(OtherListener listener) {
+			listener.onOtherEvent();
+		}
+	};
+
+	private static EventDispatcher createDispatcher() {
+		return new EventDispatcher("TestDispatcher", GenericParamExtractor._GenericParamExtractor);
+	}
+
+	@Test
+	public void test_RoutesOnlyToMatchingListeners() {
+		EventDispatcher dispatcher = createDispatcher();
+		TestListenerImpl testListener = new TestListenerImpl();
+		OtherListenerImpl otherListener = new OtherListenerImpl();
+		dispatcher.addListener(testListener);
+		dispatcher.addListener(otherListener);
+
+		dispatcher.dispatchEvent(null, TestListener.class, TestProcessor);
+		dispatcher.dispatchEvent(null, OtherListener.class, OtherProcessor);
+		dispatcher.dispatchEvent(null, OtherListener.class, OtherProcessor);
+
+		assertEquals(1, testListener.counter.get());
+		assertEquals(2, otherListener.counter.get());
+	}
+
+	@Test
+	public void test_RouteUpdatedOnAddAndRemove() {
+		EventDispatcher dispatcher = createDispatcher();
+		TestListenerImpl first = new TestListenerImpl();
+		dispatcher.addListener(first);
+
+		// builds the route for TestListener
+		dispatcher.dispatchEvent(null, TestListener.class, TestProcessor);
+
+		TestListenerImpl second = new TestListenerImpl();
+		dispatcher.addListener(second);
+		dispatcher.dispatchEvent(null, TestListener.class, TestProcessor);
+
+		dispatcher.removeListener(first);
+		dispatcher.dispatchEvent(null, TestListener.class, TestProcessor);
+
+		assertEquals(2, first.counter.get());
+		assertEquals(2, second.counter.get());
+	}
+
+	@Test
+	public void test_ChannelFollowsListenerChanges() {
+		EventDispatcher dispatcher = createDispatcher();
+		EventChannel<TestListener> channel = dispatcher.getChannel(TestListener.class);
+
+		TestListenerImpl first = new TestListenerImpl();
+		dispatcher.addListener(first);
+		dispatcher.addListener(new OtherListenerImpl());
+		channel.dispatch(TestProcessor);
+
+		TestListenerImpl second = new TestListenerImpl();
+		dispatcher.addListener(second);
+		dispatcher.removeListener(first);
+		channel.dispatch(TestProcessor);
+
+		assertEquals(1, first.counter.get());
+		assertEquals(1, second.counter.get());
+	}
+
+	@Test
+	public void test_AsyncDispatchAggregatesErrors()
+		throws InterruptedException {
+		EventDispatcher dispatcher = createDispatcher();
+		TestListenerImpl[] listeners = new TestListenerImpl[4];
+		for (int i = 0; i < listeners.length; i++) {
+			listeners[i] = new TestListenerImpl();
+			dispatcher.addListener(listeners[i]);
+		}
+
+		final CountDownLatch release = new CountDownLatch(1);
+		TestListener failingListener = new TestListener() {
+			@Override
+			public void onEvent() {
+				throw new IllegalStateException("failing listener");
+			}
+		};
+		TestListener blockingListener = new TestListener() {
+			@Override
+			public void onEvent() {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		dispatcher.addListener(failingListener);
+		dispatcher.addListener(blockingListener);
+
+		ExecutorService executor = Executors.newCachedThreadPool();
+		try {
+			EventDispatchHandle handle = dispatcher.dispatchEventAsync(executor, TestListener.class, TestProcessor);
+			assertFalse(handle.await(50, TimeUnit.MILLISECONDS));
+
+			release.countDown();
+			try {
+				handle.await();
+				fail("Expected the failing listener error");
+			} catch (EventDispatchException e) {
+				assertEquals(1, handle.getErrors().length);
+			}
+
+			assertTrue(handle.isDone());
+			for (TestListenerImpl listener : listeners) {
+				assertEquals(1, listener.counter.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void test_DispatchMetrics() {
+		EventDispatcher dispatcher = createDispatcher();
+		DispatchMetrics metrics = new DispatchMetrics();
+		dispatcher.setMetrics(metrics);
+
+		dispatcher.addListener(new TestListenerImpl());
+		dispatcher.addListener(new TestListenerImpl());
+		dispatcher.addListener(new OtherListenerImpl());
+		for (int i = 0; i < 10; i++) {
+			dispatcher.dispatchEvent(null, TestListener.class, TestProcessor);
+		}
+
+		EventMetrics eventMetrics = metrics.getEventMetrics(TestListener.class);
+		assertEquals(10, eventMetrics.getDispatchCount());
+		assertEquals(20, eventMetrics.getDeliveryCount());
+		assertEquals(2, eventMetrics.getMaxFanOut());
+		assertEquals(20, eventMetrics.getHandlerLatency(TestListenerImpl.class).getCount());
+		assertEquals(0, metrics.getEventMetrics(OtherListener.class).getDispatchCount());
+
+		dispatcher.setMetrics(null);
+		dispatcher.dispatchEvent(null, TestListener.class, TestProcessor);
+		assertEquals(10, eventMetrics.getDispatchCount());
+	}
+
+	@Test
+	public void test_LatencyHistogramPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 10000; i++) {
+			histogram.record(i * 1000L);
+		}
+
+		assertEquals(10000, histogram.getCount());
+		assertEquals(10000000, histogram.getMax());
+		assertEquals(5000000d, histogram.getValueAtPercentile(50), 5000000 * 0.07);
+		assertEquals(9900000d, histogram.getValueAtPercentile(99), 9900000 * 0.07);
+		assertEquals(10000000, histogram.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void test_LatencyHistogramConcurrentRecording()
+		throws InterruptedException {
+		final LatencyHistogram histogram = new LatencyHistogram(4);
+		final int valuesPerThread = 10000;
+		final Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int thread = t;
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					// the threads record interleaved values, so together they record 1..40000 microseconds
+					for (int i = 1; i <= valuesPerThread; i++) {
+						histogram.record((i * threads.length - thread) * 1000L);
+					}
+				}
+			});
+		}
+
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(40000, histogram.getCount());
+		assertEquals(40000000, histogram.getMax());
+		assertEquals(20000500d, histogram.getMean(), 1);
+		assertEquals(20000000d, histogram.getValueAtPercentile(50), 20000000 * 0.07);
+		assertEquals(40000000, histogram.getValueAtPercentile(100));
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getValueAtPercentile(50));
+	}
+
+	@Test
+	public void test_SteadyStateDispatchDoesNotAllocate() {
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled());
+
+		EventDispatcher dispatcher = createDispatcher();
+		TestListenerImpl[] listeners = new TestListenerImpl[16];
+		for (int i = 0; i < listeners.length; i++) {
+			listeners[i] = new TestListenerImpl();
+			dispatcher.addListener(listeners[i]);
+			dispatcher.addListener(new OtherListenerImpl());
+		}
+
+		// builds the route, resolves the processor event type, and warms up all three dispatch paths so their JIT compilation is not measured
+		EventChannel<TestListener> channel = dispatcher.getChannel(TestListener.class);
+		for (int i = 0; i < 10000; i++) {
+			dispatcher.dispatchEvent(null, TestListener.class, TestProcessor);
+			dispatcher.dispatchEvent(null, TestProcessor);
+			channel.dispatch(TestProcessor);
+		}
+
+		long threadId = Thread.currentThread().getId();
+		long measurementOverhead = -threadMXBean.getThreadAllocatedBytes(threadId) + threadMXBean.getThreadAllocatedBytes(threadId);
+		long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < 10000; i++) {
+			dispatcher.dispatchEvent(null, TestListener.class, TestProcessor);
+			dispatcher.dispatchEvent(null, TestProcessor);
+			channel.dispatch(TestProcessor);
+		}
+		long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore - measurementOverhead;
+
+		assertTrue("Dispatching allocated " + allocated + " bytes", allocated < 1024);
+		assertEquals(60000, listeners[0].counter.get());
+	}
+
+	@Test
+	public void test_CollectedListenersReclaimed()
+		throws InterruptedException {
+		EventDispatcher dispatcher = createDispatcher();
+		TestListenerImpl listener = new TestListenerImpl();
+		dispatcher.addListener(listener);
+		for (int i = 0; i < 100; i++) {
+			dispatcher.addListener(new TestListenerImpl());
+		}
+
+		for (int i = 0; i < 50 && dispatcher.getListenersCount() > 1; i++) {
+			System.gc();
+			Thread.sleep(10);
+			dispatcher.reclaimListeners();
+		}
+
+		Assume.assumeTrue(dispatcher.getListenersCount() == 1);
+		dispatcher.dispatchEvent(null, TestListener.class, TestProcessor);
+		assertEquals(1, listener.counter.get());
+
+		dispatcher.removeListener(listener);
+		assertEquals(0, dispatcher.getListenersCount());
+	}
+
+	@Test
+	public void test_PriorityOrderAndConsumableDispatch() {
+		EventDispatcher dispatcher = createDispatcher();
+		ArrayList<Integer> deliveries = new ArrayList<>();
+		PrioritizedTestListener[] listeners = {
+			new PrioritizedTestListener(0, deliveries),
+			new PrioritizedTestListener(10, deliveries),
+			new PrioritizedTestListener(-5, deliveries),
+			new PrioritizedTestListener(10, deliveries),
+			new PrioritizedTestListener(5, deliveries),
+		};
+
+		// half of the listeners are added after the route was built
+		dispatcher.addListener(listeners[0]);
+		dispatcher.addListener(listeners[1]);
+		EventChannel<TestListener> channel = dispatcher.getChannel(TestListener.class);
+		dispatcher.addListener(listeners[2]);
+		dispatcher.addListener(listeners[3]);
+		dispatcher.addListener(listeners[4]);
+
+		channel.dispatch(TestProcessor);
+		assertEquals("[10, 10, 5, 0, -5]", deliveries.toString());
+		assertEquals(1, listeners[3].counter.get());
+
+		deliveries.clear();
+		TestListener consumer = dispatcher.dispatchConsumableEvent(null, TestListener.class, new ConsumableProcessor<TestListener>() {
+			@Override
+			public boolean process(TestListener listener) {
+				listener.onEvent();
+				return ((PrioritizedTestListener) listener).priority < 10;
+			}
+		});
+
+		assertEquals("[10, 10, 5]", deliveries.toString());
+		assertTrue(consumer == listeners[4]);
+		assertEquals(1, listeners[0].counter.get());
+
+		assertNull(dispatcher.dispatchConsumableEvent(null, TestListener.class, new ConsumableProcessor<TestListener>() {
+			@Override
+			public boolean process(TestListener listener) {
+				return false;
+			}
+		}));
+	}
+
+	@Test
+	public void test_ConcurrentDispatch()
+		throws InterruptedException {
+		final EventDispatcher dispatcher = createDispatcher();
+		final TestListenerImpl[] listeners = new TestListenerImpl[16];
+		// the dispatcher holds its listeners weakly
+		OtherListenerImpl[] otherListeners = new OtherListenerImpl[listeners.length];
+		for (int i = 0; i < listeners.length; i++) {
+			listeners[i] = new TestListenerImpl();
+			dispatcher.addListener(listeners[i]);
+			dispatcher.addListener(otherListeners[i] = new OtherListenerImpl());
+		}
+
+		int threadCount = Math.max(2, Runtime.getRuntime().availableProcessors());
+		int dispatchesPerThread = 20000;
+		int churnCount = runConcurrentDispatch(dispatcher, threadCount, dispatchesPerThread);
+
+		assertTrue("Listeners were not added and removed during the dispatching", churnCount > 0);
+		for (TestListenerImpl listener : listeners) {
+			assertEquals(threadCount * dispatchesPerThread, listener.counter.get());
+		}
+		assertEquals(listeners.length * 2, dispatcher.getListenersCount());
+		for (OtherListenerImpl otherListener : otherListeners) {
+			assertNotNull(otherListener);
+		}
+	}
+
+	/**
+	 * Dispatches from all the threads at once, while another thread keeps adding and removing listeners.
+	 *
+	 * @return The number of listeners added and removed while dispatching.
+	 */
+	private int runConcurrentDispatch(final EventDispatcher dispatcher, int threadCount, final int dispatchesPerThread)
+		throws InterruptedException {
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(threadCount);
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final AtomicInteger churnCount = new AtomicInteger();
+		final AtomicReference<Throwable> error = new AtomicReference<>();
+
+		Thread churn = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					start.await();
+					while (running.get()) {
+						TestListenerImpl transientListener = new TestListenerImpl();
+						dispatcher.addListener(transientListener);
+						dispatcher.removeListener(transientListener);
+						churnCount.incrementAndGet();
+					}
+				} catch (Throwable t) {
+					error.set(t);
+				}
+			}
+		}, "listeners-churn");
+		churn.start();
+
+		for (int i = 0; i < threadCount; i++) {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for (int j = 0; j < dispatchesPerThread; j++) {
+							dispatcher.dispatchEvent(null, TestListener.class, TestProcessor);
+						}
+					} catch (Throwable t) {
+						error.set(t);
+					} finally {
+						done.countDown();
+					}
+				}
+			}, "dispatcher-" + i).start();
+		}
+
+		start.countDown();
+		done.await();
+		running.set(false);
+		churn.join();
+
+		assertNull(error.get());
+		return churnCount.get();
+	}
+}
@@ -0,0 +1,235 @@
+package com.nu.art.modular;
+
+import com.nu.art.modular.core.Module;
+import com.nu.art.modular.core.ModuleManager;
+import com.nu.art.modular.core.ModuleManagerBuilder;
+import com.nu.art.modular.core.ValidationResult;
+import com.nu.art.modular.module.MockModule;
+import com.nu.art.modular.module.RealModule;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class Test_LazyModules {
+
+	private static final AtomicInteger Inits = new AtomicInteger();
+
+	private static final AtomicInteger Validations = new AtomicInteger();
+
+	private static final CyclicBarrier CycleBarrier = new CyclicBarrier(2);
+
+	/**
+	 * Holds the creation of each of the cycle modules until both were instantiated, so each is created by its own thread.
+	 */
+	public abstract static class CycleModule
+		extends Module {
+
+		@Override
+		protected void validateModule(ValidationResult result) {
+			try {
+				CycleBarrier.await(5, TimeUnit.SECONDS);
+			} catch (Exception e) {
+				result.addEntry(this, "Cycle modules were not created concurrently: " + e);
+			}
+		}
+
+		@Override
+		protected void init() {}
+	}
+
+	public static class CycleModuleA
+		extends CycleModule {
+
+		CycleModuleB moduleB;
+	}
+
+	public static class CycleModuleB
+		extends CycleModule {
+
+		CycleModuleA moduleA;
+	}
+
+	public static class SlowInitModule
+		extends Module {
+
+		private volatile boolean initialized;
+
+		@Override
+		protected void init() {
+			Inits.incrementAndGet();
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			initialized = true;
+		}
+	}
+
+	public static class InvalidModule
+		extends Module {
+
+		@Override
+		protected void validateModule(ValidationResult result) {
+			Validations.incrementAndGet();
+			result.addEntry(this, "Not supported in this test");
+		}
+
+		@Override
+		protected void init() {}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_ConcurrentRequestsSeeInitializedModule()
+		throws Exception {
+		Inits.set(0);
+		final ModuleManager manager = new ModuleManagerBuilder().setLazyModules(true).addModules(SlowInitModule.class).build();
+
+		int threadCount = 4;
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(threadCount);
+		final List<SlowInitModule> modules = new ArrayList<>();
+		final List<Throwable> errors = new ArrayList<>();
+		for (int i = 0; i < threadCount; i++) {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						SlowInitModule module = manager.getModule(SlowInitModule.class);
+						if (!module.initialized)
+							throw new AssertionError("Received a module before its init completed");
+
+						synchronized (modules) {
+							modules.add(module);
+						}
+					} catch (Throwable e) {
+						synchronized (errors) {
+							errors.add(e);
+						}
+					} finally {
+						done.countDown();
+					}
+				}
+			}).start();
+		}
+
+		start.countDown();
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertTrue(errors.toString(), errors.isEmpty());
+		assertEquals(1, Inits.get());
+		assertEquals(threadCount, modules.size());
+		for (SlowInitModule module : modules) {
+			assertSame(modules.get(0), module);
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_ModulesInjectedWithEachOtherCreatedConcurrently()
+		throws InterruptedException {
+		final ModuleManager manager = new ModuleManagerBuilder().setLazyModules(true).addModules(CycleModuleA.class, CycleModuleB.class).build();
+		final Class<? extends Module>[] moduleTypes = new Class[]{CycleModuleA.class, CycleModuleB.class};
+		final Module[] modules = new Module[moduleTypes.length];
+		final List<Throwable> errors = new ArrayList<>();
+		Thread[] threads = new Thread[moduleTypes.length];
+		for (int i = 0; i < threads.length; i++) {
+			final int index = i;
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						modules[index] = manager.getModule(moduleTypes[index]);
+					} catch (Throwable e) {
+						synchronized (errors) {
+							errors.add(e);
+						}
+					}
+				}
+			});
+			threads[i].start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join(10000);
+			assertFalse("Lazy module creations wait for each other", thread.isAlive());
+		}
+
+		assertTrue(errors.toString(), errors.isEmpty());
+		CycleModuleA moduleA = (CycleModuleA) modules[0];
+		CycleModuleB moduleB = (CycleModuleB) modules[1];
+		assertSame(moduleB, moduleA.moduleB);
+		assertSame(moduleA, moduleB.moduleA);
+		assertSame(moduleA, manager.getModule(CycleModuleA.class));
+		assertSame(moduleB, manager.getModule(CycleModuleB.class));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_FailedCreationIsNotPublished() {
+		Validations.set(0);
+		ModuleManager manager = new ModuleManagerBuilder().setLazyModules(true).addModules(InvalidModule.class).build();
+
+		for (int i = 0; i < 2; i++) {
+			try {
+				manager.getModule(InvalidModule.class);
+				fail("Expected the module validation to fail");
+			} catch (RuntimeException e) {
+				// expected
+			}
+		}
+
+		// the failed module was never published, so every request attempts to create it again
+		assertEquals(2, Validations.get());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_LookupsDoNotAllocateOnceLazyModulesCreated() {
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled());
+
+		ModuleManager manager = new ModuleManagerBuilder().setLazyModules(true).addModules(MockModule.class, RealModule.class).build();
+		Module[] modules = manager.getModulesAssignableFrom(Module.class);
+		assertEquals(2, modules.length);
+
+		MockModule mockModule = manager.getModule(MockModule.class);
+		assertNotNull(mockModule);
+		assertSame(mockModule, manager.getModulesAssignableFrom(MockModule.class)[0]);
+		assertSame(manager.getModule(RealModule.class), manager.getModulesAssignableFrom(RealModule.class)[0]);
+
+		long threadId = Thread.currentThread().getId();
+		for (int i = 0; i < 50000; i++) {
+			manager.getModulesAssignableFrom(Module.class);
+			manager.getModule(MockModule.class);
+		}
+
+		long measurementOverhead = -threadMXBean.getThreadAllocatedBytes(threadId) + threadMXBean.getThreadAllocatedBytes(threadId);
+		long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < 10000; i++) {
+			assertSame(modules, manager.getModulesAssignableFrom(Module.class));
+			assertSame(mockModule, manager.getModule(MockModule.class));
+		}
+		long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore - measurementOverhead;
+
+		// less than a byte per lookup, leaves room for allocations of the JIT compilation, an allocating lookup takes ~100 bytes
+		assertTrue("Lookups allocated " + allocated + " bytes", allocated < 20000);
+	}
+}
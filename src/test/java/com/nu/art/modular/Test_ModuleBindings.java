@@ -0,0 +1,43 @@
+package com.nu.art.modular;
+
+import com.nu.art.modular.core.ModuleManager;
+import com.nu.art.modular.core.ModuleManagerBuilder;
+import com.nu.art.modular.module.BoundModule;
+import com.nu.art.modular.module.BoundModule_ModuleBinding;
+import com.nu.art.modular.module.InaccessibleInterfaceModule;
+import com.nu.art.modular.module.InaccessibleInterfaceModule.IInaccessibleInterfaceModule;
+import com.nu.art.modular.module.MockModule;
+import com.nu.art.modular.module.RealModule;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class Test_ModuleBindings {
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_BindingAndReflectionInjection() {
+		int injections = BoundModule_ModuleBinding.Injections.get();
+		ModuleManager manager = new ModuleManagerBuilder().addModules(MockModule.class, BoundModule.class, RealModule.class).build();
+		MockModule mockModule = manager.getModule(MockModule.class);
+
+		// injected via its binding
+		BoundModule boundModule = manager.getModule(BoundModule.class);
+		assertEquals(injections + 1, BoundModule_ModuleBinding.Injections.get());
+		assertSame(mockModule, boundModule.getMockModule());
+		assertTrue(boundModule.isBoundToInterface());
+
+		// no binding, injected via reflection
+		assertEquals("ab", manager.getModule(RealModule.class).getString());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_UnboundDefaultInterfaceFallsBackToReflection() {
+		ModuleManager manager = new ModuleManagerBuilder().addModules(InaccessibleInterfaceModule.class).build();
+		assertSame(manager.getModule(InaccessibleInterfaceModule.class), IInaccessibleInterfaceModule._InaccessibleInterfaceModule);
+	}
+}
@@ -0,0 +1,433 @@
+package com.nu.art.modular;
+
+import com.nu.art.core.generics.Processor;
+import com.nu.art.modular.core.Module;
+import com.nu.art.modular.core.ModuleItem;
+import com.nu.art.modular.core.ModuleItemPool;
+import com.nu.art.modular.core.ModuleManager;
+import com.nu.art.modular.core.ModuleManagerBuilder;
+import com.nu.art.modular.module.MockModule;
+import com.nu.art.modular.module.RealModule;
+import com.nu.art.modular.tests.ModuleManager_TestClass;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class Test_ModuleManagers {
+
+	public static class StuckModule
+		extends Module {
+
+		@Override
+		protected void init() {}
+
+		@Override
+		protected void dispose() {
+			try {
+				Thread.sleep(60000);
+			} catch (InterruptedException ignore) {}
+		}
+	}
+
+	public static class ReplacementMockModule
+		extends MockModule {
+
+		@Override
+		public String concatString(String str1, String str2) {
+			return str2 + str1;
+		}
+	}
+
+	public static class HolderItem
+		extends ModuleItem {
+
+		MockModule mockModule;
+
+		@Override
+		protected void init() {}
+
+		void done() {
+			release();
+		}
+	}
+
+	public static class ItemsModule
+		extends Module {
+
+		@Override
+		protected void init() {}
+
+		HolderItem createHolder() {
+			return createModuleItem(HolderItem.class);
+		}
+	}
+
+	private static final CyclicBarrier BuildBarrier = new CyclicBarrier(2);
+
+	/**
+	 * Can only complete its init while the module manager of the other test class is built at the same time.
+	 */
+	public abstract static class BarrierModule
+		extends Module {
+
+		@Override
+		protected void init() {
+			try {
+				BuildBarrier.await(5, TimeUnit.SECONDS);
+			} catch (Exception e) {
+				throw new RuntimeException("Module managers of different test classes were not built concurrently", e);
+			}
+		}
+	}
+
+	public static class BarrierModuleA
+		extends BarrierModule {}
+
+	public static class BarrierModuleB
+		extends BarrierModule {}
+
+	public static class TestClassA
+		extends ModuleManager_TestClass {
+
+		@SuppressWarnings("unchecked")
+		static void setUp() {
+			initWithModules(BarrierModuleA.class);
+		}
+
+		static BarrierModuleA getBarrierModule() {
+			return getModule(BarrierModuleA.class);
+		}
+	}
+
+	public static class TestClassB
+		extends ModuleManager_TestClass {
+
+		@SuppressWarnings("unchecked")
+		static void setUp() {
+			initWithModules(BarrierModuleB.class);
+		}
+
+		static BarrierModuleB getBarrierModule() {
+			return getModule(BarrierModuleB.class);
+		}
+	}
+
+	public static class AsyncTestClass
+		extends ModuleManager_TestClass {
+
+		@SuppressWarnings("unchecked")
+		static void setUp() {
+			initWithModules(MockModule.class);
+		}
+
+		/**
+		 * @return The module resolved by the static {@link #getModule(Class)} within a test of an async scenario, on the shared test executor.
+		 */
+		MockModule getModuleInAsyncScenario() {
+			final AtomicReference<MockModule> module = new AtomicReference<>();
+			createAsyncScenario("executor").addTest(createTest("get-module", "resolves the module on the test executor").setProcessor(new Processor<TestItem<Boolean>>() {
+				@Override
+				public void process(TestItem<Boolean> test) {
+					module.set(getModule(MockModule.class));
+					test._set(true);
+				}
+			})).execute();
+			return module.get();
+		}
+	}
+
+	public static class PooledItem
+		extends ModuleItem {
+
+		int inits;
+
+		int recycles;
+
+		String state;
+
+		@Override
+		protected void init() {
+			inits++;
+		}
+
+		@Override
+		protected void onRecycled() {
+			recycles++;
+			state = null;
+		}
+
+		void done() {
+			release();
+		}
+	}
+
+	public static class PoolingModule
+		extends Module {
+
+		ModuleItemPool<PooledItem> pool;
+
+		@Override
+		protected void init() {
+			pool = enableModuleItemPooling(PooledItem.class, 1);
+		}
+
+		PooledItem createItem() {
+			return createModuleItem(PooledItem.class);
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_IsolatedManagersBuiltConcurrently()
+		throws InterruptedException {
+		final ModuleManager[] managers = new ModuleManager[Math.max(2, Runtime.getRuntime().availableProcessors())];
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(managers.length);
+		final AtomicReference<Throwable> error = new AtomicReference<>();
+
+		for (int i = 0; i < managers.length; i++) {
+			final int index = i;
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						managers[index] = new ModuleManagerBuilder().addModules(RealModule.class, MockModule.class).build();
+					} catch (Throwable t) {
+						error.set(t);
+					} finally {
+						done.countDown();
+					}
+				}
+			}, "manager-builder-" + i).start();
+		}
+
+		start.countDown();
+		done.await();
+		assertNull(error.get());
+
+		for (int i = 0; i < managers.length; i++) {
+			assertEquals("ab", managers[i].getModule(RealModule.class).getString());
+			for (int j = i + 1; j < managers.length; j++) {
+				assertNotSame(managers[i].getModule(RealModule.class), managers[j].getModule(RealModule.class));
+				assertNotSame(managers[i].getModule(MockModule.class), managers[j].getModule(MockModule.class));
+			}
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_DisposeInReverseDependencyOrder() {
+		ModuleManager manager = new ModuleManagerBuilder().addModules(MockModule.class, RealModule.class).build();
+		RealModule realModule = manager.getModule(RealModule.class);
+		MockModule mockModule = manager.getModule(MockModule.class);
+
+		assertTrue(manager.dispose(1000));
+		assertTrue(realModule.disposeIndex > 0);
+		assertTrue(realModule.disposeIndex < mockModule.disposeIndex);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_DisposeTimeout() {
+		ModuleManager manager = new ModuleManagerBuilder().addModules(StuckModule.class, MockModule.class).build();
+		MockModule mockModule = manager.getModule(MockModule.class);
+
+		long started = System.currentTimeMillis();
+		assertFalse(manager.dispose(100));
+		assertTrue(System.currentTimeMillis() - started < 10000);
+		assertTrue(mockModule.disposeIndex > 0);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_ReplaceModule() {
+		ModuleManager manager = new ModuleManagerBuilder().addModules(MockModule.class, RealModule.class, ItemsModule.class).build();
+		MockModule oldModule = manager.getModule(MockModule.class);
+		RealModule realModule = manager.getModule(RealModule.class);
+		HolderItem item = manager.getModule(ItemsModule.class).createHolder();
+		assertEquals("ab", realModule.getString());
+
+		ReplacementMockModule newModule = new ReplacementMockModule();
+		assertSame(oldModule, manager.replaceModule(MockModule.class, newModule));
+
+		assertEquals("ba", realModule.getString());
+		assertSame(newModule, item.mockModule);
+		assertSame(newModule, manager.getModule(MockModule.class));
+		assertSame(newModule, manager.getModule(ReplacementMockModule.class));
+		assertEquals(1, manager.getModulesAssignableFrom(MockModule.class).length);
+		assertSame(newModule, manager.getModulesAssignableFrom(MockModule.class)[0]);
+		assertTrue(oldModule.disposeIndex > 0);
+		assertEquals(0, newModule.disposeIndex);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_ReplaceModuleReinjectsLiveAndPooledItems() {
+		ModuleManager manager = new ModuleManagerBuilder().addModules(MockModule.class, RealModule.class, ItemsModule.class).build();
+		ItemsModule itemsModule = manager.getModule(ItemsModule.class);
+		MockModule oldModule = manager.getModule(MockModule.class);
+
+		HolderItem released = itemsModule.createHolder();
+		released.done();
+
+		manager.enableModuleItemPooling(HolderItem.class, 1);
+		HolderItem pooled = itemsModule.createHolder();
+		HolderItem live = itemsModule.createHolder();
+		pooled.done();
+
+		ReplacementMockModule newModule = new ReplacementMockModule();
+		manager.replaceModule(MockModule.class, newModule);
+
+		// released items which were not pooled are no longer tracked
+		assertSame(oldModule, released.mockModule);
+		assertSame(newModule, pooled.mockModule);
+		assertSame(newModule, live.mockModule);
+		assertSame(pooled, itemsModule.createHolder());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_ModuleItemPooling() {
+		PoolingModule module = new ModuleManagerBuilder().addModules(PoolingModule.class).build().getModule(PoolingModule.class);
+		PooledItem first = module.createItem();
+		PooledItem second = module.createItem();
+		first.state = "first";
+		second.state = "second";
+
+		first.done();
+		second.done();
+
+		// only the item which was returned to the pool is reset
+		assertNull(first.state);
+		assertEquals(1, first.recycles);
+		assertEquals("second", second.state);
+		assertEquals(0, second.recycles);
+
+		PooledItem reused = module.createItem();
+		assertSame(first, reused);
+		assertNull(reused.state);
+		assertEquals(2, reused.inits);
+		assertNotSame(reused, module.createItem());
+
+		assertEquals(1, module.pool.getHits());
+		assertEquals(3, module.pool.getMisses());
+		assertEquals(1, module.pool.getRecycled());
+		assertEquals(1, module.pool.getDropped());
+		assertEquals(0, module.pool.getSize());
+
+		// releasing an item twice does not pool it twice
+		reused.done();
+		reused.done();
+		assertEquals(1, module.pool.getSize());
+		assertEquals(2, module.pool.getRecycled());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_ConcurrentReleasesPoolItemOnce()
+		throws Exception {
+		PoolingModule module = new ModuleManagerBuilder().addModules(PoolingModule.class).build().getModule(PoolingModule.class);
+		final CyclicBarrier barrier = new CyclicBarrier(2);
+		final AtomicReference<Throwable> error = new AtomicReference<>();
+		int iterations = 1000;
+		for (int i = 0; i < iterations; i++) {
+			final PooledItem item = module.createItem();
+			Thread[] releasers = new Thread[barrier.getParties()];
+			for (int j = 0; j < releasers.length; j++) {
+				releasers[j] = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							barrier.await(5, TimeUnit.SECONDS);
+							item.done();
+						} catch (Throwable t) {
+							error.set(t);
+						}
+					}
+				});
+				releasers[j].start();
+			}
+
+			for (Thread releaser : releasers) {
+				releaser.join();
+			}
+		}
+
+		assertNull(error.get());
+		// a second release of the same item would either be dropped by the full pool, or hand the item to two owners
+		assertEquals(0, module.pool.getDropped());
+		assertEquals(iterations, module.pool.getRecycled());
+		assertEquals(1, module.pool.getSize());
+	}
+
+	@Test
+	public void test_TestClassesBuildTheirManagersConcurrently()
+		throws InterruptedException {
+		final CountDownLatch done = new CountDownLatch(2);
+		final AtomicReference<Throwable> error = new AtomicReference<>();
+		Runnable[] setUps = {
+			new Runnable() {
+				@Override
+				public void run() {
+					TestClassA.setUp();
+				}
+			},
+			new Runnable() {
+				@Override
+				public void run() {
+					TestClassB.setUp();
+				}
+			}
+		};
+
+		for (final Runnable setUp : setUps) {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						setUp.run();
+					} catch (Throwable t) {
+						error.set(t);
+					} finally {
+						done.countDown();
+					}
+				}
+			}).start();
+		}
+
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertNull(error.get());
+
+		TestClassA testA = new TestClassA();
+		TestClassB testB = new TestClassB();
+		assertNotSame(testA.getModuleManager(), testB.getModuleManager());
+		assertSame(testA.getModuleManager().getModule(BarrierModuleA.class), TestClassA.getBarrierModule());
+		assertSame(testB.getModuleManager().getModule(BarrierModuleB.class), TestClassB.getBarrierModule());
+
+		// a second init of the same test class keeps its manager
+		TestClassA.setUp();
+		assertSame(testA.getModuleManager(), new TestClassA().getModuleManager());
+	}
+
+	@Test
+	public void test_TestClassModulesResolvedOnHarnessThreads() {
+		AsyncTestClass.setUp();
+		AsyncTestClass test = new AsyncTestClass();
+		MockModule module = test.getModuleInAsyncScenario();
+		assertNotNull(module);
+		assertSame(test.getModuleManager().getModule(MockModule.class), module);
+	}
+}
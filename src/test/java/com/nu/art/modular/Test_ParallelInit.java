@@ -0,0 +1,163 @@
+package com.nu.art.modular;
+
+import com.nu.art.core.exceptions.runtime.BadImplementationException;
+import com.nu.art.modular.core.Module;
+import com.nu.art.modular.core.ModuleManagerBuilder;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class Test_ParallelInit {
+
+	private static final CyclicBarrier Barrier = new CyclicBarrier(2);
+
+	private static final AtomicInteger ActiveInits = new AtomicInteger();
+
+	private static final AtomicInteger SequentialViolations = new AtomicInteger();
+
+	private static final List<String> InitOrder = new ArrayList<>();
+
+	/**
+	 * Can only complete its init while the other barrier module is initialized at the same time.
+	 */
+	public abstract static class BarrierModule
+		extends Module {
+
+		@Override
+		protected void init() {
+			try {
+				Barrier.await(5, TimeUnit.SECONDS);
+			} catch (Exception e) {
+				throw new RuntimeException("Modules were not initialized in parallel", e);
+			}
+		}
+	}
+
+	public static class BarrierModuleA
+		extends BarrierModule {}
+
+	public static class BarrierModuleB
+		extends BarrierModule {}
+
+	public abstract static class TrackedModule
+		extends Module {
+
+		@Override
+		protected void init() {
+			ActiveInits.incrementAndGet();
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+
+			synchronized (InitOrder) {
+				InitOrder.add(getClass().getSimpleName());
+			}
+			ActiveInits.decrementAndGet();
+		}
+	}
+
+	public static class BaseModule
+		extends TrackedModule {}
+
+	public static class DependentModuleA
+		extends TrackedModule {
+
+		BaseModule baseModule;
+	}
+
+	public static class DependentModuleB
+		extends TrackedModule {
+
+		BaseModule baseModule;
+	}
+
+	public static class SequentialModule
+		extends Module {
+
+		public SequentialModule() {
+			setSequentialInit(true);
+		}
+
+		@Override
+		protected void init() {
+			if (ActiveInits.get() != 0)
+				SequentialViolations.incrementAndGet();
+
+			try {
+				Thread.sleep(40);
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+
+			if (ActiveInits.get() != 0)
+				SequentialViolations.incrementAndGet();
+
+			synchronized (InitOrder) {
+				InitOrder.add(getClass().getSimpleName());
+			}
+		}
+	}
+
+	public static class CycleModuleA
+		extends Module {
+
+		CycleModuleB cycleModuleB;
+
+		@Override
+		protected void init() {}
+	}
+
+	public static class CycleModuleB
+		extends Module {
+
+		CycleModuleA cycleModuleA;
+
+		@Override
+		protected void init() {}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_IndependentModulesInitInParallel() {
+		Assume.assumeTrue(Runtime.getRuntime().availableProcessors() > 1);
+		new ModuleManagerBuilder().setParallelInit(true).addModules(BarrierModuleA.class, BarrierModuleB.class).build();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_DependencyOrderAndSequentialInit() {
+		InitOrder.clear();
+		SequentialViolations.set(0);
+		new ModuleManagerBuilder().setParallelInit(true)
+		                          .addModules(DependentModuleA.class, SequentialModule.class, DependentModuleB.class, BaseModule.class)
+		                          .build();
+
+		assertEquals(4, InitOrder.size());
+		assertEquals("BaseModule", InitOrder.get(0));
+		assertTrue(InitOrder.contains("SequentialModule"));
+		assertEquals(0, SequentialViolations.get());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_CircularDependencyDetected() {
+		try {
+			new ModuleManagerBuilder().setParallelInit(true).addModules(CycleModuleA.class, CycleModuleB.class).build();
+			fail("Expected the circular dependency to be detected");
+		} catch (BadImplementationException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("Circular module dependency"));
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package com.nu.art.modular;
+
+import com.nu.art.modular.metrics.StartupProfiler;
+import com.nu.art.modular.metrics.StartupProfiler.Phase;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class Test_StartupProfiler {
+
+	private static final long Millis = TimeUnit.MILLISECONDS.toNanos(1);
+
+	/**
+	 * A(10) <- B(10+20) <- D(20), A(10) <- C(5) <- D(20), and an independent E(50), the critical path is A, B, D with 60ms.
+	 */
+	private static StartupProfiler createProfiler(long origin) {
+		StartupProfiler profiler = new StartupProfiler();
+		profiler.record(Phase.Validate, null, origin, origin + 2 * Millis);
+		profiler.record(Phase.Init, "A", origin, origin + 10 * Millis);
+		profiler.record(Phase.Inject, "B", origin + 10 * Millis, origin + 20 * Millis);
+		profiler.record(Phase.Init, "B", origin + 20 * Millis, origin + 40 * Millis);
+		profiler.record(Phase.Init, "C", origin + 10 * Millis, origin + 15 * Millis);
+		profiler.record(Phase.Init, "D", origin + 40 * Millis, origin + 60 * Millis);
+		profiler.record(Phase.Init, "E", origin, origin + 50 * Millis);
+
+		profiler.addDependencies("A", new String[0]);
+		profiler.addDependencies("B", new String[]{"A"});
+		profiler.addDependencies("C", new String[]{"A"});
+		profiler.addDependencies("D", new String[]{"B", "C"});
+		profiler.addDependencies("E", new String[0]);
+		return profiler;
+	}
+
+	@Test
+	public void test_CriticalPath() {
+		StartupProfiler profiler = createProfiler(System.nanoTime());
+
+		assertArrayEquals(new String[]{"A", "B", "D"}, profiler.getCriticalPath());
+		assertEquals(60 * Millis, profiler.getCriticalPathDurationNanos());
+		assertEquals(30 * Millis, profiler.getDurationNanos("B"));
+		assertEquals(50 * Millis, profiler.getDurationNanos("E"));
+	}
+
+	@Test
+	public void test_JsonStructure() {
+		StartupProfiler profiler = createProfiler(System.nanoTime());
+		String json = profiler.toJson();
+		String thread = Thread.currentThread().getName();
+
+		assertTrue(json, json.startsWith("{\n  \"records\": [\n"));
+		assertEquals(7, count(json, "{\"phase\": "));
+		assertTrue(json, json.contains("{\"phase\": \"Validate\", \"name\": null, \"thread\": \"" + thread + "\""));
+		assertTrue(json, json.contains("{\"phase\": \"Init\", \"name\": \"B\", \"thread\": \"" + thread + "\""));
+		assertTrue(json, json.contains(", \"durationUs\": 20000}"));
+		assertTrue(json, json.contains("\"dependencies\": {\n    \"A\": [],\n    \"B\": [\"A\"],\n    \"C\": [\"A\"],\n    \"D\": [\"B\", \"C\"],\n    \"E\": []\n  }"));
+		assertTrue(json, json.endsWith("\"criticalPath\": {\"durationUs\": 60000, \"modules\": [\"A\", \"B\", \"D\"]}\n}\n"));
+	}
+
+	@Test
+	public void test_ChromeTraceStructure()
+		throws InterruptedException {
+		final StartupProfiler profiler = createProfiler(System.nanoTime());
+		Thread worker = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				long started = System.nanoTime();
+				profiler.record(Phase.Init, "Quoted \"F\"", started, started + 3 * Millis);
+			}
+		}, "init-worker");
+		worker.start();
+		worker.join();
+
+		String trace = profiler.toChromeTrace();
+		long tid = Thread.currentThread().getId();
+
+		assertTrue(trace, trace.startsWith("{\"displayTimeUnit\": \"ms\", \"traceEvents\": [\n"));
+		assertTrue(trace, trace.endsWith("\n]}\n"));
+		assertEquals(8, count(trace, "\"ph\": \"X\""));
+		assertTrue(trace, trace.contains("{\"name\": \"Validate\", \"cat\": \"Validate\", \"ph\": \"X\", \"pid\": 1, \"tid\": " + tid + ", \"ts\": "));
+		assertTrue(trace, trace.contains("{\"name\": \"B Inject\", \"cat\": \"Inject\", \"ph\": \"X\", \"pid\": 1, \"tid\": " + tid + ", \"ts\": "));
+		assertTrue(trace, trace.contains("{\"name\": \"Quoted \\\"F\\\" Init\", \"cat\": \"Init\", \"ph\": \"X\", \"pid\": 1, \"tid\": " + worker.getId() + ", \"ts\": "));
+		assertTrue(trace, trace.contains(", \"dur\": 3000}"));
+
+		assertEquals(2, count(trace, "\"name\": \"thread_name\", \"ph\": \"M\""));
+		assertTrue(trace, trace.contains("\"tid\": " + tid + ", \"args\": {\"name\": \"" + Thread.currentThread().getName() + "\"}}"));
+		assertTrue(trace, trace.contains("\"tid\": " + worker.getId() + ", \"args\": {\"name\": \"init-worker\"}}"));
+	}
+
+	private static int count(String text, String token) {
+		int count = 0;
+		for (int index = text.indexOf(token); index != -1; index = text.indexOf(token, index + token.length())) {
+			count++;
+		}
+		return count;
+	}
+}
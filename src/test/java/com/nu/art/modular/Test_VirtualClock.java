@@ -0,0 +1,62 @@
+package com.nu.art.modular;
+
+import com.nu.art.modular.tests.VirtualClock;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class Test_VirtualClock {
+
+	@Test
+	public void test_TimeoutWithoutWaiting()
+		throws InterruptedException {
+		VirtualClock clock = new VirtualClock();
+		long started = System.nanoTime();
+
+		assertFalse(clock.await(new CountDownLatch(1), 60000));
+		assertEquals(60000, clock.currentTimeMillis());
+		assertTrue(System.nanoTime() - started < 1000000000L);
+	}
+
+	@Test
+	public void test_DelayedCompletionInOrder()
+		throws InterruptedException {
+		final VirtualClock clock = new VirtualClock();
+		final CountDownLatch latch = new CountDownLatch(1);
+		final ArrayList<Long> executed = new ArrayList<>();
+
+		clock.schedule(new Runnable() {
+			@Override
+			public void run() {
+				executed.add(clock.currentTimeMillis());
+				latch.countDown();
+			}
+		}, 3000);
+		clock.schedule(new Runnable() {
+			@Override
+			public void run() {
+				executed.add(clock.currentTimeMillis());
+			}
+		}, 1000);
+		clock.schedule(new Runnable() {
+			@Override
+			public void run() {
+				executed.add(clock.currentTimeMillis());
+			}
+		}, 5000);
+
+		assertTrue(clock.await(latch, 10000));
+		assertEquals(Arrays.asList(1000L, 3000L), executed);
+		assertEquals(3000, clock.currentTimeMillis());
+
+		clock.advance(2000);
+		assertEquals(Arrays.asList(1000L, 3000L, 5000L), executed);
+	}
+}
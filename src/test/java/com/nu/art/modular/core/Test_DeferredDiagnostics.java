@@ -0,0 +1,89 @@
+package com.nu.art.modular.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class Test_DeferredDiagnostics {
+
+	private static final class Diagnostic
+		implements Runnable {
+
+		private final List<String> written;
+
+		private final String name;
+
+		private Thread writerThread;
+
+		private Diagnostic(List<String> written, String name) {
+			this.written = written;
+			this.name = name;
+		}
+
+		@Override
+		public void run() {
+			writerThread = Thread.currentThread();
+			synchronized (written) {
+				written.add(name);
+			}
+		}
+	}
+
+	@Test
+	public void test_WrittenInOrderOffTheBuildThreadOnFlush()
+		throws InterruptedException {
+		List<String> written = new ArrayList<>();
+		DeferredDiagnostics diagnostics = new DeferredDiagnostics();
+		Diagnostic first = new Diagnostic(written, "first");
+		diagnostics.defer(first);
+		diagnostics.defer(new Runnable() {
+			@Override
+			public void run() {
+				throw new IllegalStateException("a failing diagnostic must not stop the following ones");
+			}
+		});
+		diagnostics.defer(new Diagnostic(written, "second"));
+
+		// nothing is written while the manager is being built
+		assertFalse(diagnostics.await(1000));
+		assertTrue(written.isEmpty());
+
+		diagnostics.flush();
+		diagnostics.defer(new Diagnostic(written, "third"));
+		assertTrue(diagnostics.await(5000));
+
+		synchronized (written) {
+			assertEquals(Arrays.asList("first", "second", "third"), written);
+		}
+		assertFalse(first.writerThread == Thread.currentThread());
+		assertTrue(first.writerThread.getName(), first.writerThread.getName().startsWith("module-diagnostics"));
+
+		diagnostics.shutdown();
+	}
+
+	@Test
+	public void test_PendingWrittenOnShutdown()
+		throws InterruptedException {
+		List<String> written = new ArrayList<>();
+		DeferredDiagnostics diagnostics = new DeferredDiagnostics();
+		for (int i = 0; i < 100; i++) {
+			diagnostics.defer(new Diagnostic(written, "diagnostic-" + i));
+		}
+
+		diagnostics.shutdown();
+		assertTrue(diagnostics.await(5000));
+
+		synchronized (written) {
+			assertEquals(100, written.size());
+			for (int i = 0; i < written.size(); i++) {
+				assertEquals("diagnostic-" + i, written.get(i));
+			}
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package com.nu.art.modular.core;
+
+import com.nu.art.modular.core.ModuleManager.ModuleInjector;
+import com.nu.art.modular.module.BoundModule;
+import com.nu.art.modular.module.BoundModule_ModuleBinding;
+import com.nu.art.modular.module.MockModule;
+import com.nu.art.modular.module.RealModule;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class Test_InjectionPlans {
+
+	public abstract static class BaseHolder {
+
+		MockModule inheritedModule;
+	}
+
+	public static class Holder
+		extends BaseHolder {
+
+		static MockModule staticModule;
+
+		RealModule realModule;
+
+		Module untypedModule;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ModuleManager createManager() {
+		return new ModuleManagerBuilder().addModules(MockModule.class, RealModule.class, BoundModule.class).build();
+	}
+
+	@Test
+	public void test_PlanBuiltOncePerType() {
+		ModuleInjector injector = createManager().getInjector();
+		InjectionPlan plan = injector.getInjectionPlan(Holder.class);
+		injector.inject(new Holder());
+		injector.inject(new Holder());
+
+		assertSame(plan, injector.getInjectionPlan(Holder.class));
+		List<Class<? extends Module>> injectedTypes = Arrays.asList(plan.injectedTypes);
+		assertEquals(2, injectedTypes.size());
+		assertTrue(injectedTypes.contains(MockModule.class));
+		assertTrue(injectedTypes.contains(RealModule.class));
+	}
+
+	@Test
+	public void test_PlanInjectsLikeReflection() {
+		ModuleManager manager = createManager();
+		ModuleInjector injector = manager.getInjector();
+		Holder planned = new Holder();
+		injector.inject(planned);
+		Holder reflected = new Holder();
+		injector.injectToInstance(reflected);
+
+		assertNotNull(planned.inheritedModule);
+		assertSame(reflected.inheritedModule, planned.inheritedModule);
+		assertSame(manager.getModule(RealModule.class), planned.realModule);
+		assertSame(reflected.realModule, planned.realModule);
+		assertNull(planned.untypedModule);
+		assertNull(Holder.staticModule);
+	}
+
+	@Test
+	public void test_BindingPlanInjectsLikeReflection() {
+		ModuleManager manager = createManager();
+		ModuleInjector injector = manager.getInjector();
+		InjectionPlan plan = injector.getInjectionPlan(BoundModule.class);
+		assertNull(plan.getFields());
+
+		int injections = BoundModule_ModuleBinding.Injections.get();
+		BoundModule planned = new BoundModule();
+		injector.inject(planned);
+		assertEquals(injections + 1, BoundModule_ModuleBinding.Injections.get());
+
+		BoundModule reflected = new BoundModule();
+		injector.injectToInstance(reflected);
+		assertEquals(injections + 1, BoundModule_ModuleBinding.Injections.get());
+
+		assertSame(manager.getModule(MockModule.class), planned.getMockModule());
+		assertSame(reflected.getMockModule(), planned.getMockModule());
+		assertSame(plan, injector.getInjectionPlan(BoundModule.class));
+	}
+}
@@ -0,0 +1,218 @@
+package com.nu.art.modular.core;
+
+import com.nu.art.modular.core.StartupCache.ModuleMetadata;
+import com.nu.art.modular.module.MockModule;
+import com.nu.art.modular.module.RealModule;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class Test_StartupCache {
+
+	private static final int Magic = 0x4D4D5343;
+
+	private static final int FormatVersion = 2;
+
+	public abstract static class CachedItemBase
+		extends ModuleItem {
+
+		MockModule mockModule;
+	}
+
+	public static class CachedItem
+		extends CachedItemBase {
+
+		RealModule realModule;
+
+		@Override
+		protected void init() {}
+	}
+
+	private File folder;
+
+	private File cacheFile;
+
+	@Before
+	public void createFolder()
+		throws IOException {
+		folder = Files.createTempDirectory("startup-cache").toFile();
+		cacheFile = new File(folder, "modules.cache");
+	}
+
+	@After
+	public void deleteFolder() {
+		File[] files = folder.listFiles();
+		if (files != null)
+			for (File file : files) {
+				file.delete();
+			}
+		folder.delete();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ModuleMetadata[] createModules() {
+		return new ModuleMetadata[]{
+			new ModuleMetadata(MockModule.class, new Class[]{MockModule.class}, true, null),
+			new ModuleMetadata(RealModule.class, new Class[]{RealModule.class}, false, null),
+		};
+	}
+
+	private static LinkedHashMap<Class<?>, Field[]> createInjectedFields()
+		throws NoSuchFieldException {
+		LinkedHashMap<Class<?>, Field[]> injectedFields = new LinkedHashMap<>();
+		injectedFields.put(RealModule.class, new Field[]{RealModule.class.getDeclaredField("module")});
+		return injectedFields;
+	}
+
+	@Test
+	public void test_RoundTrip()
+		throws Exception {
+		new StartupCache(cacheFile, 42).save(createModules(), createInjectedFields());
+		new StartupCache(cacheFile, 42).save(createModules(), createInjectedFields());
+
+		// the temporary files were moved over the cache file
+		assertArrayEquals(new String[]{cacheFile.getName()}, folder.list());
+
+		StartupCache startupCache = new StartupCache(cacheFile, 42);
+		assertTrue(startupCache.load());
+
+		ModuleMetadata[] modules = startupCache.getModules();
+		assertEquals(2, modules.length);
+		assertSame(MockModule.class, modules[0].moduleType);
+		assertArrayEquals(new Class[]{MockModule.class}, modules[0].keys);
+		assertTrue(modules[0].interfaceResolved);
+		assertSame(RealModule.class, modules[1].moduleType);
+		assertFalse(modules[1].interfaceResolved);
+
+		LinkedHashMap<Class<?>, Field[]> injectedFields = startupCache.getInjectedFields();
+		assertEquals(1, injectedFields.size());
+		assertEquals(RealModule.class.getDeclaredField("module"), injectedFields.get(RealModule.class)[0]);
+	}
+
+	@Test
+	public void test_FingerprintMismatch()
+		throws Exception {
+		new StartupCache(cacheFile, 42).save(createModules(), createInjectedFields());
+
+		StartupCache startupCache = new StartupCache(cacheFile, 43);
+		assertFalse(startupCache.load());
+		assertNull(startupCache.getModules());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void test_FingerprintFollowsClassFiles()
+		throws Exception {
+		URL classFile = RealModule.class.getResource("RealModule.class");
+		Assume.assumeTrue(classFile != null && "file".equals(classFile.getProtocol()));
+
+		File file = new File(classFile.toURI());
+		long lastModified = file.lastModified();
+		List<ModulesPack> packs = Arrays.asList(new ModulesPack(MockModule.class, RealModule.class));
+
+		long fingerprint = StartupCache.fingerprint("1.0", packs);
+		assertEquals(fingerprint, StartupCache.fingerprint("1.0", packs));
+		assertNotEquals(fingerprint, StartupCache.fingerprint("1.1", packs));
+
+		try {
+			assertTrue(file.setLastModified(lastModified - 60000));
+			assertNotEquals(fingerprint, StartupCache.fingerprint("1.0", packs));
+		} finally {
+			file.setLastModified(lastModified);
+		}
+	}
+
+	@Test
+	public void test_RecompiledInjectedTypesInvalidateCache()
+		throws Exception {
+		assertInvalidatedByRecompiling(CachedItem.class);
+		assertInvalidatedByRecompiling(CachedItemBase.class);
+	}
+
+	/**
+	 * Asserts that a cache holding the module fields of {@link CachedItem} is not loaded once the class file of the given type is modified.
+	 */
+	private void assertInvalidatedByRecompiling(Class<?> recompiledType)
+		throws Exception {
+		URL classFile = recompiledType.getResource(recompiledType.getName().substring(recompiledType.getPackage().getName().length() + 1) + ".class");
+		Assume.assumeTrue(classFile != null && "file".equals(classFile.getProtocol()));
+
+		LinkedHashMap<Class<?>, Field[]> injectedFields = createInjectedFields();
+		injectedFields.put(CachedItem.class, new Field[]{
+			CachedItem.class.getDeclaredField("realModule"),
+			CachedItemBase.class.getDeclaredField("mockModule")
+		});
+		new StartupCache(cacheFile, 42).save(createModules(), injectedFields);
+		assertTrue(new StartupCache(cacheFile, 42).load());
+
+		File file = new File(classFile.toURI());
+		long lastModified = file.lastModified();
+		try {
+			assertTrue(file.setLastModified(lastModified - 60000));
+			StartupCache startupCache = new StartupCache(cacheFile, 42);
+			assertFalse(startupCache.load());
+			assertNull(startupCache.getInjectedFields());
+		} finally {
+			file.setLastModified(lastModified);
+		}
+	}
+
+	@Test
+	public void test_CorruptedFile()
+		throws Exception {
+		DataOutputStream output = new DataOutputStream(new FileOutputStream(cacheFile));
+		try {
+			output.writeInt(Magic);
+			output.writeInt(FormatVersion);
+			output.writeLong(42);
+			output.writeInt(Integer.MAX_VALUE);
+		} finally {
+			output.close();
+		}
+		assertCorrupted();
+
+		// a truncated file
+		new StartupCache(cacheFile, 42).save(createModules(), createInjectedFields());
+		byte[] bytes = Files.readAllBytes(cacheFile.toPath());
+		Files.write(cacheFile.toPath(), Arrays.copyOf(bytes, bytes.length - 5));
+		assertCorrupted();
+
+		// the corrupted file is replaced by the next save
+		new StartupCache(cacheFile, 42).save(createModules(), createInjectedFields());
+		assertTrue(new StartupCache(cacheFile, 42).load());
+	}
+
+	private void assertCorrupted() {
+		StartupCache startupCache = new StartupCache(cacheFile, 42);
+		try {
+			startupCache.load();
+			fail("Expected the corrupted file to fail loading");
+		} catch (IOException e) {
+			// expected
+		}
+
+		assertNull(startupCache.getModules());
+	}
+}
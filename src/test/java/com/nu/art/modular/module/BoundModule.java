@@ -0,0 +1,25 @@
+package com.nu.art.modular.module;
+
+import com.nu.art.modular.core.Module;
+
+/**
+ * A module injected via its binding, see {@link BoundModule_ModuleBinding}.
+ */
+public class BoundModule
+	extends Module {
+
+	MockModule mockModule;
+
+	boolean boundToInterface;
+
+	@Override
+	protected void init() { }
+
+	public MockModule getMockModule() {
+		return mockModule;
+	}
+
+	public boolean isBoundToInterface() {
+		return boundToInterface;
+	}
+}
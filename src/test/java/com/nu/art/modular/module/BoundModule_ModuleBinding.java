@@ -0,0 +1,38 @@
+package com.nu.art.modular.module;
+
+import com.nu.art.modular.core.ModuleBinding;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Written as the module-manager-processor would generate it, and counts its injections.
+ */
+public final class BoundModule_ModuleBinding
+	implements ModuleBinding<BoundModule> {
+
+	public static final AtomicInteger Injections = new AtomicInteger();
+
+	private static final Class<?>[] InjectedTypes = {MockModule.class};
+
+	@Override
+	public Class<?>[] getInjectedTypes() {
+		return InjectedTypes;
+	}
+
+	@Override
+	public void inject(BoundModule instance, Object[] modules) {
+		Injections.incrementAndGet();
+		instance.mockModule = (MockModule) modules[0];
+	}
+
+	@Override
+	public Class<?>[] getListenerTypes() {
+		return null;
+	}
+
+	@Override
+	public boolean bindDefaultInterface(BoundModule instance) {
+		instance.boundToInterface = true;
+		return true;
+	}
+}
@@ -0,0 +1,18 @@
+package com.nu.art.modular.module;
+
+import com.nu.art.modular.core.Module;
+
+/**
+ * A module whose binding cannot assign its default interface, see {@link InaccessibleInterfaceModule_ModuleBinding}.
+ */
+public class InaccessibleInterfaceModule
+	extends Module {
+
+	public static class IInaccessibleInterfaceModule {
+
+		public static InaccessibleInterfaceModule _InaccessibleInterfaceModule;
+	}
+
+	@Override
+	protected void init() { }
+}
@@ -0,0 +1,30 @@
+package com.nu.art.modular.module;
+
+import com.nu.art.modular.core.ModuleBinding;
+
+/**
+ * Written as the module-manager-processor would generate it for a default interface which is not accessible to the generated code.
+ */
+public final class InaccessibleInterfaceModule_ModuleBinding
+	implements ModuleBinding<InaccessibleInterfaceModule> {
+
+	private static final Class<?>[] InjectedTypes = {};
+
+	@Override
+	public Class<?>[] getInjectedTypes() {
+		return InjectedTypes;
+	}
+
+	@Override
+	public void inject(InaccessibleInterfaceModule instance, Object[] modules) {}
+
+	@Override
+	public Class<?>[] getListenerTypes() {
+		return null;
+	}
+
+	@Override
+	public boolean bindDefaultInterface(InaccessibleInterfaceModule instance) {
+		return false;
+	}
+}
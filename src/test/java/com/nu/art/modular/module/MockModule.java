@@ -2,12 +2,23 @@ package com.nu.art.modular.module;
 
 import com.nu.art.modular.core.Module;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class MockModule
 	extends Module {
 
+	public static final AtomicInteger DisposeSequence = new AtomicInteger();
+
+	public int disposeIndex;
+
 	@Override
 	protected void init() { }
 
+	@Override
+	protected void dispose() {
+		disposeIndex = DisposeSequence.incrementAndGet();
+	}
+
 	public String concatString(String str1, String str2) {
 		return str1 + str2;
 	}
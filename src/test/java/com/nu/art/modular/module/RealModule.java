@@ -7,11 +7,18 @@ public class RealModule
 
 	MockModule module;
 
+	public int disposeIndex;
+
 	@Override
 	protected void init() {
 
 	}
 
+	@Override
+	protected void dispose() {
+		disposeIndex = MockModule.DisposeSequence.incrementAndGet();
+	}
+
 	public int getValue(int input) {
 		return input * 2 + 10;
 	}